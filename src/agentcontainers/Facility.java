@@ -1,26 +1,20 @@
 package agentcontainers;
 import agents.Person;
+import agents.PersonPool;
 import builders.FacilityEpiSim;
+import builders.ModelParameters;
+import builders.RunContext;
 import disease.Disease;
 import disease.FacilityOutbreak;
 import disease.PersonDisease;
-import org.apache.commons.math3.distribution.ExponentialDistribution;
-import org.apache.commons.math3.distribution.GammaDistribution;
-import repast.simphony.engine.schedule.ISchedulableAction;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ScheduleParameters;
-import repast.simphony.parameter.Parameters;
-import repast.simphony.random.RandomHelper;
-import repast.simphony.context.Context;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.util.ContextUtils;
-import utils.TimeUtils;
+import engine.EventScheduler;
+import org.apache.commons.math3.random.RandomGenerator;
 import utils.MixedGamma;
+import utils.Samplers;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 /**
  * Represents a healthcare facility agent in the disease transmission simulation.
@@ -63,24 +57,24 @@ public class Facility extends AgentContainer{
 	private double newPatientAdmissionRate;
 	private double avgPopTarget;
 	private double meanLOS;
-	private double avgPopulation;
-	private int numDaysTallied = 0;
 	private double patientDays;
 	private int numAdmissions = 0;
-	private ExponentialDistribution distro;
-	private ISchedule schedule;
-	private ISchedulableAction nextAction;
+	private EventScheduler schedule;
+	private boolean rateUpdatePending = false;
 	private ArrayList<FacilityOutbreak> outbreaks = new ArrayList<>();
-	private LinkedList<Person> currentPatients = new LinkedList<>();
+	private final PatientStore currentPatients = new PatientStore(PatientStore.FACILITY);
+	private final PersonPool patientPool = new PersonPool(PersonPool.DEFAULT_CAPACITY);
 	private boolean stop = false;
 	private double meanIntraEventTime;
 	private int capacity;
 	private double isolationEffectiveness;
 	private int totalAdmissions;
 	private int totalImports;
-	private PrintWriter admissionsWriter;
+	private transient PrintWriter admissionsWriter;
 	public boolean importation;
-	private Parameters params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
+	private ModelParameters params;
+	private FacilityEpiSim builder;
+	private final RunContext context;
 	
 
 
@@ -95,14 +89,22 @@ public class Facility extends AgentContainer{
     
     // Constructor
 
-	public Facility() {
+	public Facility(RunContext context) {
 		super();
-		schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		region = new Region(this);
+		this.context = context;
+		schedule = context.getScheduler();
+		openOutputs();
+	}
+
+	/**
+	 * Opens the admissions log in the run's output directory, unless this is a
+	 * batch run. Called on construction and again when a run is resumed from a
+	 * burn-in snapshot.
+	 */
+	public void openOutputs() {
 		try {
-			if(!FacilityEpiSim.isBatchRun) {
-            admissionsWriter = new PrintWriter("admissions.txt");
+			if(!context.isBatchRun()) {
+            admissionsWriter = context.openWriter("admissions.txt");
             admissionsWriter.println("time,patientid,importation");
 			}
         }
@@ -113,14 +115,15 @@ public class Facility extends AgentContainer{
 
 	/**
 	 * Creates and admits a new patient to this facility.
-	 * Generates a new {@link Person} agent with diseases and calls {@link #admitPatient(Person)}
-	 * to integrate the patient into the facility. Increments the total admission counter.
+	 * Takes a {@link Person} agent from the facility's pool (recycled or new) and calls
+	 * {@link #admitPatient(Person)} to integrate the patient into the facility. Increments
+	 * the total admission counter.
 	 *
 	 * @param sched the simulation schedule (currently unused but retained for API compatibility)
 	 */
-	public void admitNewPatient(ISchedule sched) {
+	public void admitNewPatient(EventScheduler sched) {
 
-		Person newPatient = new Person(this);
+		Person newPatient = patientPool.obtain(this);
 		admitPatient(newPatient);
 		totalAdmissions++;
 	}
@@ -141,14 +144,14 @@ public class Facility extends AgentContainer{
 	 * @param p the patient to admit
 	 */
 	public void admitPatient(Person p){
-		double admissionSurveillanceAdherence = params.getDouble("admissionSurveillanceAdherence");
+		double admissionSurveillanceAdherence = params.getAdmissionSurveillanceAdherence();
 		region.importToFacilityNew(this,p);
 	    
-		logPatientAdmission(schedule.getTickCount(), p.hashCode(), (boolean) p.getProperty("importation"));
+		logPatientAdmission(schedule.getTickCount(), p.hashCode(), p.isImportation());
 		p.admitToFacility(this);
 		
 
-		p.startDischargeTimer(getRandomLOS());
+		p.startDischargeTimer(getRandomLOS(p.getRandomStreams().getLengthOfStay()));
 
 		
 
@@ -156,7 +159,7 @@ public class Facility extends AgentContainer{
 			if(pd.isColonized()){
 				
 				if(pd.getDisease().isActiveSurveillanceAgent() && onActiveSurveillance){
-					if(uniform() < pd.getDisease().getProbSurveillanceDetection() * admissionSurveillanceAdherence){
+					if(p.getRandomStreams().getSurveillance().nextDouble() < pd.getDisease().getProbSurveillanceDetection() * admissionSurveillanceAdherence){
 						pd.setDetected(true);
 						pd.setDetectedBySurveillance();
 						if(pd.getDisease().isolatePatientWhenDetected()) p.isolate();
@@ -166,7 +169,9 @@ public class Facility extends AgentContainer{
 			}
 		}
 		getCurrentPatients().add(p);
+		addToOutbreakTallies(p);
 		getRegion().getPeople().add(p);
+		builder.addAgent(p);
 
 		//todo:  missing braces here?  Smoking gun?
 		if(onActiveSurveillance && !p.isIsolated() && getTimeBetweenMidstaySurveillanceTests() > 0) {
@@ -182,11 +187,13 @@ public class Facility extends AgentContainer{
 	 * <ul>
 	 *   <li>Removing the patient from the facility's region and patient list</li>
 	 *   <li>Recording the discharge time</li>
-	 *   <li>Creating a {@link agents.DischargedPatient} record (if in measurement period)</li>
+	 *   <li>Writing the patient's row to discharged_patients.csv (if in measurement period
+	 *       and the run writes its output files)</li>
 	 *   <li>Updating stay statistics for tracking patient-days (if in measurement period)</li>
 	 *   <li>Canceling all scheduled events for the patient</li>
-	 *   <li>Removing the patient from the Repast context for garbage collection</li>
+	 *   <li>Removing the patient from the Repast context, if patients are displayed</li>
 	 *   <li>Updating transmission rates across all disease outbreaks</li>
+	 *   <li>Returning the patient to the facility's pool for reuse</li>
 	 * </ul>
 	 *
 	 * @param p the patient to discharge
@@ -196,19 +203,34 @@ public class Facility extends AgentContainer{
 
 
 		getCurrentPatients().remove(p);
+		removeFromOutbreakTallies(p);
 		updateTransmissionRate();
 		FacilityEpiSim builder = getSimulationBuilder();
-		p.setDischargeTime(TimeUtils.getSchedule().getTickCount());
-		if (!region.isInBurnInPeriod()) {
-			builder.dischargedPatients.add(new agents.DischargedPatient(p));
+		p.setDischargeTime(schedule.getTickCount());
+		// The records only feed discharged_patients.csv, which batch runs do not write
+		if (!region.isInBurnInPeriod() && !context.isBatchRun()) {
+			builder.recordDischarge(p);
 		}
 		if(!getRegion().isInBurnInPeriod()) updateStayTally(p);
 		p.destroyMyself(getRegion());
-		// Remove from Repast context to allow dereferencing and garbage collection
-		if (builder.getContext() != null) {
-			builder.getContext().remove(p);
-		}
+		p.cancelAllEvents();
+		// Leaves the Repast context if the GUI displays patients
+		builder.removeAgent(p);
 		p.setNoMoreEvents(true);
+		patientPool.release(p);
+	}
+
+	/**
+	 * Takes a patient for this facility from its pool, recycled if one is available.
+	 *
+	 * @return the patient, not yet admitted
+	 */
+	public Person newPatient() {
+		return patientPool.obtain(this);
+	}
+
+	public PersonPool getPatientPool() {
+		return patientPool;
 	}
 
 	/**
@@ -218,8 +240,22 @@ public class Facility extends AgentContainer{
 	 * based on the current patient population and disease states. Called when the patient
 	 * population changes (admission or discharge).
 	 * </p>
+	 * <p>
+	 * During an event the recalculation is deferred until the handler finishes, so an
+	 * admission or transmission that changes several patient states reschedules the
+	 * transmission event once.
+	 * </p>
 	 */
 	public void updateTransmissionRate(){
+		if (rateUpdatePending) {
+			return;
+		}
+		rateUpdatePending = true;
+		schedule.runAfterCurrentEvent(this::recomputeTransmissionRates);
+	}
+
+	private void recomputeTransmissionRates() {
+		rateUpdatePending = false;
 		for(FacilityOutbreak fo : outbreaks) fo.updateTransmissionRate(region);
 	}
 
@@ -233,11 +269,22 @@ public class Facility extends AgentContainer{
 	 * @return the random length of stay in days, or -1.0 if facility type is not recognized
 	 */
 	public double getRandomLOS(){
+		return getRandomLOS(context.getRandomStreams().getLengthOfStay());
+	}
+
+	/**
+	 * Generates a random length of stay drawn from the given stream, such as a
+	 * patient's own length of stay stream.
+	 *
+	 * @param random the stream to draw from
+	 * @return the random length of stay in days, or -1.0 if facility type is not recognized
+	 */
+	public double getRandomLOS(RandomGenerator random){
 		if(getType()==0){
 			if (losDistro == null) {
-				losDistro = new MixedGamma(shape1, scale1, shape2, scale2, prob1);
+				losDistro = new MixedGamma(context.getRandomStreams().getLengthOfStay(), shape1, scale1, shape2, scale2, prob1);
 			}
-			return losDistro.sample();
+			return losDistro.sample(random);
 		}
 		else{
 			return -1.0;
@@ -257,9 +304,7 @@ public class Facility extends AgentContainer{
 	 */
 	public void admitInitialPatient(Person p){
 		p.admitToFacility(this);
-		p.startDischargeTimer(exponential(1.0/getMeanLOS()));
-
-		region.people.add(p);
+		p.startDischargeTimer(Samplers.exponential(p.getRandomStreams().getLengthOfStay(), getMeanLOS()));
 
 		if(onActiveSurveillance) {
 		}
@@ -270,25 +315,39 @@ public class Facility extends AgentContainer{
 			}
 		}
 		getCurrentPatients().add(p);
+		addToOutbreakTallies(p);
+		builder.addAgent(p);
 
 		p.updateAllTransmissionRateContributions();
 	}
 
 	/**
-	 * Updates the daily population statistics for this facility.
-	 * <p>
-	 * Calculates the running average population size and updates prevalence tallies
-	 * for each disease outbreak. Called once per simulation day.
-	 * </p>
+	 * Registers a patient's disease states with the matching outbreak tallies.
+	 * Called once the patient has joined {@code currentPatients}.
+	 *
+	 * @param p the admitted patient
 	 */
-	public void updatePopulationTally(){
-		avgPopulation = (avgPopulation * numDaysTallied + region.people.size() / (numDaysTallied + 1));
-		numDaysTallied++;
-
-		for(FacilityOutbreak fo : outbreaks) {
-			fo.updatePrevalenceTally();
+	private void addToOutbreakTallies(Person p) {
+		for (FacilityOutbreak fo : outbreaks) {
+			int idx = fo.getDisease().getSimIndex();
+			if (idx < p.getDiseases().size()) {
+				fo.addPatient(p.getDiseases().get(idx));
+			}
 		}
+	}
 
+	/**
+	 * Removes a patient's disease states from the outbreak tallies.
+	 *
+	 * @param p the discharged patient
+	 */
+	private void removeFromOutbreakTallies(Person p) {
+		for (FacilityOutbreak fo : outbreaks) {
+			int idx = fo.getDisease().getSimIndex();
+			if (idx < p.getDiseases().size()) {
+				fo.removePatient(p.getDiseases().get(idx));
+			}
+		}
 	}
 
 	/**
@@ -346,38 +405,6 @@ public class Facility extends AgentContainer{
 		onActiveSurveillance = true;
 	}
 
-	/**
-	 * Generates a uniform random number between 0 and 1.
-	 *
-	 * @return a random double in the range [0, 1)
-	 */
-	public double uniform() {
-		return Math.random();
-	}
-
-	/**
-	 * Samples from a gamma distribution with the specified shape and scale parameters.
-	 *
-	 * @param shape the shape parameter (k)
-	 * @param scale the scale parameter (θ)
-	 * @return a random sample from the gamma distribution
-	 */
-	public double gamma(double shape, double scale) {
-		GammaDistribution gammaDistribution = new GammaDistribution(shape, scale);
-		return gammaDistribution.sample();
-	}
-
-	/**
-	 * Samples from an exponential distribution with the specified rate parameter.
-	 *
-	 * @param rate the rate parameter (λ), where mean = 1/λ
-	 * @return a random sample from the exponential distribution
-	 */
-	public double exponential(double rate) {
-		ExponentialDistribution exponentialDistribution = new ExponentialDistribution(rate);
-		return exponentialDistribution.sample();
-	}
-
 	/**
 	 * Creates and registers a new disease outbreak for this facility.
 	 * <p>
@@ -389,7 +416,7 @@ public class Facility extends AgentContainer{
 	 * @return the new FacilityOutbreak agent
 	 */
 	public FacilityOutbreak addOutbreaks(Disease d) {
-		FacilityOutbreak newOutbreak = new FacilityOutbreak(meanIntraEventTime, d);
+		FacilityOutbreak newOutbreak = new FacilityOutbreak(meanIntraEventTime, d, context);
 		newOutbreak.setFacility(this);
 
 		outbreaks.add(newOutbreak);
@@ -423,7 +450,7 @@ public class Facility extends AgentContainer{
         this.shape2 = shape2;
         this.scale2 = scale2;
         this.prob1 = prob1;
-        this.losDistro = new MixedGamma(shape1, scale1, shape2, scale2, prob1);
+        this.losDistro = new MixedGamma(context.getRandomStreams().getLengthOfStay(), shape1, scale1, shape2, scale2, prob1);
     }
     public double getShape1() { return shape1; }
     public double getScale1() { return scale1; }
@@ -444,9 +471,15 @@ public class Facility extends AgentContainer{
 	}
 
 	public double getMidstaySurveillanceAdherence() {
-		double  midstaySurveillanceAdherence = params.getDouble("midstaySurveillanceAdherence");
-		
-	    return midstaySurveillanceAdherence;
+	    return params.getMidstaySurveillanceAdherence();
+	}
+
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	public void setParameters(ModelParameters params) {
+		this.params = params;
 	}
 
 	public void setType(int type) {
@@ -489,11 +522,15 @@ public class Facility extends AgentContainer{
 	    return region;
 	}
 
+	public RunContext getRunContext() {
+	    return context;
+	}
+
 	public void setRegion(Region region) {
 	    this.region = region;
 	}
 
-	public LinkedList<Person> getCurrentPatients() {
+	public PatientStore getCurrentPatients() {
 	    return currentPatients;
 	}
 	
@@ -501,10 +538,6 @@ public class Facility extends AgentContainer{
 	    return currentPatients.size();
 	}
 
-	public void setCurrentPatients(LinkedList<Person> currentPatients) {
-	    this.currentPatients = currentPatients;
-	}
-
 	public double getPatientDays() {
 	    return patientDays;
 	}
@@ -525,54 +558,24 @@ public class Facility extends AgentContainer{
 		return outbreaks;
 	}
 	public void logPatientAdmission(double time, int patientID, boolean importation) {
-		if(!FacilityEpiSim.isBatchRun && admissionsWriter != null) {
+		if(admissionsWriter != null) {
 		
           admissionsWriter.printf("%.2f,%d,%b%n", time, patientID, importation);
 		}
     }
     
     /**
-     * Gets a reference to the root context in Repast Simphony.
-     * This uses ContextUtils to get the context containing this facility object,
-     * which should be the root context where the simulation builder was added.
-     * 
-     * @return the root context
-     */
-    @SuppressWarnings("unchecked")
-    public Context<Object> getRootContext() {
-        return ContextUtils.getContext(this);
-    }
-    
-    /**
-     * Gets the FacilityEpiSimBuilder from the root context.
-     * This allows access to the main simulation controller and its methods/data.
+     * Gets the simulation controller running this facility, as set by
+     * {@link #setSimulationBuilder(FacilityEpiSim)}.
      *
-     * @return the FacilityEpiSimBuilder instance, or null if not found
+     * @return the FacilityEpiSim instance, or null if not set
      */
     public FacilityEpiSim getSimulationBuilder() {
-        Context<Object> rootContext = getRootContext();
-        for (Object obj : rootContext) {
-            if (obj instanceof FacilityEpiSim) {
-                return (FacilityEpiSim) obj;
-            }
-        }
-        return null;
+        return builder;
     }
     
-    /**
-     * Alternative method to get the region from the root context.
-     * This demonstrates how to find specific objects in the context hierarchy.
-     * 
-     * @return the Region instance, or null if not found
-     */
-    public Region getRegionFromContext() {
-        Context<Object> rootContext = getRootContext();
-        for (Object obj : rootContext) {
-            if (obj instanceof Region) {
-                return (Region) obj;
-            }
-        }
-        return null;
+    public void setSimulationBuilder(FacilityEpiSim builder) {
+        this.builder = builder;
     }
 
     public void finishSimulation() {
@@ -0,0 +1,269 @@
+package agentcontainers;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import agents.Person;
+import disease.PersonDisease;
+
+/**
+ * Dense list of the patients in a facility or region.
+ * <p>
+ * Patients are kept in the first {@code size} elements of an array, and each
+ * patient records its slot in every store it belongs to (see
+ * {@link Person#getStoreSlot(int)}). Adding appends, and removing moves the
+ * last patient into the vacated slot, so admissions, discharges and
+ * {@link #contains(Object)} cost O(1) whatever the census, and loops over
+ * the patients walk a contiguous array. The price is that removal does not
+ * preserve order.
+ * </p>
+ * <p>
+ * The store also keeps running counts of its colonized, detected and isolated
+ * patients, so the daily tallies read them in constant time. Each patient
+ * remembers the state it was last counted in ({@link Person#getCountedState()});
+ * adding and removing a patient add and subtract that state, and a patient
+ * whose state changes reports the old and new states through
+ * {@link #recount(int, int)}. {@link #audit()} checks the counts against a
+ * full scan of the patients.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class PatientStore extends AbstractList<Person> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Slot index of a facility's current patients. */
+	public static final int FACILITY = 0;
+	/** Slot index of a region's people. */
+	public static final int REGION = 1;
+	/** Number of stores a patient can be in at once. */
+	public static final int STORE_KINDS = 2;
+
+	/** State bit of a patient colonized with any disease. */
+	public static final int COLONIZED = 1;
+	/** State bit of a patient with any detected disease. */
+	public static final int DETECTED = 2;
+	/** State bit of an isolated patient. */
+	public static final int ISOLATED = 4;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int kind;
+	private Person[] patients = new Person[INITIAL_CAPACITY];
+	private int size = 0;
+	private int colonizedCount = 0;
+	private int detectedCount = 0;
+	private int isolatedCount = 0;
+
+	/**
+	 * @param kind which slot of each patient this store uses, {@link #FACILITY}
+	 *             or {@link #REGION}
+	 */
+	public PatientStore(int kind) {
+		if (kind < 0 || kind >= STORE_KINDS) {
+			throw new IllegalArgumentException("Unknown patient store kind " + kind);
+		}
+		this.kind = kind;
+	}
+
+	/**
+	 * Appends a patient.
+	 *
+	 * @param p the patient
+	 * @return true
+	 * @throws IllegalStateException if the patient is already in a store of this kind
+	 */
+	@Override
+	public boolean add(Person p) {
+		if (p.getStoreSlot(kind) >= 0) {
+			throw new IllegalStateException("Patient " + p.hashCode() + " is already in a store (slot "
+					+ p.getStoreSlot(kind) + ")");
+		}
+		if (size == patients.length) {
+			patients = Arrays.copyOf(patients, size * 2);
+		}
+		patients[size] = p;
+		p.setStoreSlot(kind, size);
+		count(p.getCountedState(), 1);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Removes a patient by moving the last patient into its slot.
+	 *
+	 * @param o the patient
+	 * @return true if the patient was in this store
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		Person p = (Person) o;
+		int slot = p.getStoreSlot(kind);
+		count(p.getCountedState(), -1);
+		Person last = patients[--size];
+		patients[slot] = last;
+		last.setStoreSlot(kind, slot);
+		patients[size] = null;
+		p.setStoreSlot(kind, -1);
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Moves a patient of this store from one state to another in the counts;
+	 * called by {@link Person#stateChanged()}.
+	 *
+	 * @param oldState the state bits the patient was counted in
+	 * @param newState the patient's current state bits
+	 */
+	public void recount(int oldState, int newState) {
+		count(oldState, -1);
+		count(newState, 1);
+	}
+
+	private void count(int state, int delta) {
+		if ((state & COLONIZED) != 0) {
+			colonizedCount += delta;
+		}
+		if ((state & DETECTED) != 0) {
+			detectedCount += delta;
+		}
+		if ((state & ISOLATED) != 0) {
+			isolatedCount += delta;
+		}
+	}
+
+	/**
+	 * @param p a patient
+	 * @return the patient's current {@link #COLONIZED}, {@link #DETECTED} and
+	 *         {@link #ISOLATED} bits
+	 */
+	public static int stateOf(Person p) {
+		int state = p.isIsolated() ? ISOLATED : 0;
+		for (PersonDisease pd : p.getDiseases()) {
+			if (pd.isColonized()) {
+				state |= COLONIZED;
+			}
+			if (pd.isDetected()) {
+				state |= DETECTED;
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * @return the number of patients colonized with any disease
+	 */
+	public int countColonized() {
+		return colonizedCount;
+	}
+
+	/**
+	 * @return the number of patients with any detected disease
+	 */
+	public int countDetected() {
+		return detectedCount;
+	}
+
+	/**
+	 * @return the number of isolated patients
+	 */
+	public int countIsolated() {
+		return isolatedCount;
+	}
+
+	/**
+	 * Cross-checks the running counts against a full scan of the patients'
+	 * own state, which catches a state change that was not reported through
+	 * {@link Person#stateChanged()}. Costs a pass over the census, so it is
+	 * meant for audit runs.
+	 *
+	 * @throws IllegalStateException if any count disagrees
+	 */
+	public void audit() {
+		int c = 0;
+		int d = 0;
+		int i = 0;
+		for (int slot = 0; slot < size; slot++) {
+			Person p = patients[slot];
+			if (p.getStoreSlot(kind) != slot) {
+				throw new IllegalStateException("Patient " + p.hashCode() + " in slot " + slot + " records slot "
+						+ p.getStoreSlot(kind));
+			}
+			int state = stateOf(p);
+			if (state != p.getCountedState()) {
+				throw new IllegalStateException("Patient " + p.hashCode() + " is in state " + state
+						+ " but was counted in state " + p.getCountedState());
+			}
+			c += (state & COLONIZED) != 0 ? 1 : 0;
+			d += (state & DETECTED) != 0 ? 1 : 0;
+			i += (state & ISOLATED) != 0 ? 1 : 0;
+		}
+		check("colonized", colonizedCount, c);
+		check("detected", detectedCount, d);
+		check("isolated", isolatedCount, i);
+	}
+
+	private static void check(String name, int counter, int scanned) {
+		if (counter != scanned) {
+			throw new IllegalStateException("Patient store " + name + " count " + counter + " disagrees with scan ("
+					+ scanned + ")");
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (!(o instanceof Person)) {
+			return -1;
+		}
+		int slot = ((Person) o).getStoreSlot(kind);
+		return slot >= 0 && slot < size && patients[slot] == o ? slot : -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	@Override
+	public Person get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		return patients[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			patients[i].setStoreSlot(kind, -1);
+			patients[i] = null;
+		}
+		size = 0;
+		colonizedCount = 0;
+		detectedCount = 0;
+		isolatedCount = 0;
+		modCount++;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+}
@@ -1,12 +1,12 @@
 package agentcontainers;
 
 import agents.Person;
-import builders.FacilityEpiSim;
+import builders.ModelParameters;
+import builders.RunContext;
 import disease.Disease;
 import disease.FacilityOutbreak;
 import disease.PersonDisease;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ScheduleParameters;
+import engine.EventScheduler;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -14,32 +14,45 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 
 public class Region extends AgentContainer {
+	private static final long serialVersionUID = 1L;
+
 	private boolean stop = false;
 
 	private boolean inBurnInPeriod = true;
+	private double burnInEndTime;
 	private int numImportations = 0;
 	private boolean useSingleImportation = false;
 	public int numTransmissionsFromInitialCase = 0;
 	public int colonizedCount;
 	private double intra_event_time;
-	private ISchedule schedule;
+	private EventScheduler schedule;
 
 	private ArrayList<Facility> facilities = new ArrayList<Facility>();
 	public ArrayList<Disease> diseases = new ArrayList<Disease>();
-	public ArrayList<Person> people = new ArrayList<Person>();
+	public final PatientStore people = new PatientStore(PatientStore.REGION);
 	private int totalImports;
-	private PrintWriter writer;
+	private transient PrintWriter writer;
+	private ModelParameters params;
+	private final RunContext context;
 
 	public Region(Facility f) {
 		super();
-		schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
+		context = f.getRunContext();
+		schedule = context.getScheduler();
 		if (!facilities.contains(f) && facilities.size() < 1) {
 			facilities.add(f);
 		}
+		openOutputs();
+	}
+
+	/**
+	 * Opens the daily population log, unless this is a batch run.
+	 */
+	public void openOutputs() {
 		try {
-			if(!FacilityEpiSim.isBatchRun) {
+			if(!context.isBatchRun()) {
 
-			writer = new PrintWriter("daily_population_stats.txt");
+			writer = context.openWriter("daily_population_stats.txt");
 			writer.println("Time,total_population,colonized,detected,isolated");
 			}
 		} catch (FileNotFoundException e) {
@@ -49,34 +62,14 @@ public class Region extends AgentContainer {
 
 	}
 
-	// make int
-	public int dailyPopulationTally() {
-		return people.size();
-	}
-
-	public void doPopulationTally() {
-		for (Facility f : facilities) {
-			f.updatePopulationTally();
-
-		}
-		// action.call()
-		if (!stop) {
-			dailyPopulationTally();
-		}
-		// stop=true;
-	}
-
 	public void remove_people(Person person) {
-
-		if (people.contains(person)) {
-			people.remove(person);
-			this.remove(person);
-		}
+		people.remove(person);
 	}
 
 	public void importToFacility(Facility f) {
 
-		Person p = add_people(f);
+		// admitPatient adds the patient to the region
+		Person p = f.newPatient();
 
 		p.setRegion(this);
 		for (Disease d : diseases) {
@@ -92,7 +85,7 @@ public class Region extends AgentContainer {
 				}
 			} else {
 				// Jan 10, 2025 WRR: This needs to go in Facility.admitPerson() at the top
-				if (uniform() < d.getImportationProb()) {
+				if (uniform(p) < d.getImportationProb()) {
 					pd.colonize();
 				}
 			}
@@ -111,12 +104,12 @@ public class Region extends AgentContainer {
 			PersonDisease pd = p.add_diseases();
 			pd.setDisease(d);
 			pd.setPerson(p);
-			if (uniform() < d.getImportationProb()) {
-				p.setProperty("importation", true);
+			if (uniform(p) < d.getImportationProb()) {
+				p.setImportation(true);
 				pd.colonize();
 				totalImports++;
 			} else {
-				p.setProperty("importation", false);
+				p.setImportation(false);
 			}
 		}
 	}
@@ -129,7 +122,7 @@ public class Region extends AgentContainer {
 			pd.setDisease(d);
 			pd.setPerson(p);
 			// todo get this parameterized
-			if (!useSingleImportation && uniform() < 0.456)
+			if (!useSingleImportation && uniform(p) < 0.456)
 				pd.colonize();
 		}
 		f.admitInitialPatient(p);
@@ -143,12 +136,16 @@ public class Region extends AgentContainer {
 			f.startActiveSurveillance();
 	}
 
-	public double uniform() {
-		return Math.random();
+	/**
+	 * @param p the arriving patient
+	 * @return a uniform draw in [0, 1) from the patient's importation stream
+	 */
+	public double uniform(Person p) {
+		return p.getRandomStreams().getImportation().nextDouble();
 	}
 
 	public Person add_people(Facility f) {
-		Person newPerson = new Person(f);
+		Person newPerson = f.newPatient();
 
 		newPerson.setRegion(this);
 		people.add(newPerson);
@@ -166,36 +163,15 @@ public class Region extends AgentContainer {
 		return disease;
 	}
 
-	public void startDailyPopulationTallyTimer() {
-		stop = false;
-		double currTime = schedule.getTickCount();
-		ScheduleParameters params = ScheduleParameters.createOneTime(currTime, 1);
-		schedule.schedule(params, this, "doPopulationTally");
-	}
-
 	public void logDailyPopulationStats() {
 	    	int totalPopulation = people.size();
-		int totalColonized = 0;
-		int totalDetected = 0;
-		int totalIsolated = 0;
-
-		for (Person p : people) {
-			for (PersonDisease pd : p.getDiseases()) {
-				if (pd.isColonized()) {
-					totalColonized++;
-				}
-				if (pd.isDetected()) {
-					totalDetected++;
-				}
-			}
-			if (p.isIsolated()) {
-				totalIsolated++;
-			}
-		}
+		int totalColonized = people.countColonized();
+		int totalDetected = people.countDetected();
+		int totalIsolated = people.countIsolated();
 
 		double currentTime = schedule.getTickCount();
-		if (currentTime > 3650) {
-			if(!FacilityEpiSim.isBatchRun) {
+		if (!inBurnInPeriod && currentTime > burnInEndTime) {
+			if(writer != null) {
 			writer.printf("%.2f,%d,%d,%d,"
 				+ "%d%n", currentTime, totalPopulation, totalColonized,
 					totalDetected, totalIsolated);
@@ -205,7 +181,6 @@ public class Region extends AgentContainer {
 
 	public void finishSimulation() {
 		stop = true;
-		schedule.setFinishing(true);
 		// Call finishSimulation on each facility so they can close their writers
 		for (Facility f : facilities) {
 			if (f != null) {
@@ -237,6 +212,9 @@ public class Region extends AgentContainer {
 
 	public void setInBurnInPeriod(boolean b) {
 		inBurnInPeriod = b;
+		if (!b) {
+			burnInEndTime = schedule.getTickCount();
+		}
 
 	}
 
@@ -280,11 +258,11 @@ public class Region extends AgentContainer {
 		this.intra_event_time = intra_event_time;
 	}
 
-	public ISchedule getSchedule() {
+	public EventScheduler getSchedule() {
 		return schedule;
 	}
 
-	public void setSchedule(ISchedule schedule) {
+	public void setSchedule(EventScheduler schedule) {
 		this.schedule = schedule;
 	}
 
@@ -296,14 +274,10 @@ public class Region extends AgentContainer {
 		this.facilities = facilities;
 	}
 
-	public ArrayList<Person> getPeople() {
+	public PatientStore getPeople() {
 		return people;
 	}
 
-	public void setPeople(ArrayList<Person> people) {
-		this.people = people;
-	}
-
 	public boolean isInBurnInPeriod() {
 		return inBurnInPeriod;
 	}
@@ -312,6 +286,26 @@ public class Region extends AgentContainer {
 		this.diseases = diseases;
 	}
 
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	/**
+	 * Sets the run's parameter snapshot on this region and passes it on to its
+	 * facilities and diseases.
+	 *
+	 * @param params the resolved model parameters
+	 */
+	public void setParameters(ModelParameters params) {
+		this.params = params;
+		for (Facility f : facilities) {
+			f.setParameters(params);
+		}
+		for (Disease d : diseases) {
+			d.setParameters(params);
+		}
+	}
+
 	public int getTotalImports() {
 		return totalImports;
 	}
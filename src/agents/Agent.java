@@ -1,17 +1,15 @@
 package agents;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
+import java.io.Serializable;
 
-import repast.simphony.engine.schedule.ISchedulableAction;
-import repast.simphony.engine.schedule.ISchedule;
+abstract class Agent implements Serializable {
+	private static final long serialVersionUID = 1L;
 
-abstract class Agent {
-    private static int idCounter = 0;
     protected int id;
 	
 
-	Agent() {
-	this.id = idCounter++;
+	Agent(int id) {
+	this.id = id;
 		
 	}
 
@@ -4,7 +4,10 @@
 
 package agents;
 
-public class DischargedPatient {
+import java.io.Serializable;
+
+public class DischargedPatient implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	// Patient identification and timing information
 	private int id;
@@ -1,57 +1,45 @@
 package agents;
 
 import agentcontainers.Facility;
+import agentcontainers.PatientStore;
 import agentcontainers.Region;
-import builders.FacilityEpiSim;
+import builders.RunContext;
 import disease.Disease;
 import disease.PersonDisease;
 
-import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ScheduleParameters;
+import engine.EventRegistry;
+import engine.EventScheduler;
+import engine.EventTarget;
+import utils.RandomStreams;
 
-public class Person extends Agent {
+public class Person extends Agent implements EventTarget {
+	private static final long serialVersionUID = 1L;
+
+	public static final int EVENT_DISCHARGE = 1;
+	public static final int EVENT_SURVEILLANCE_TEST = 2;
 
 	private Region region;
-	private static ISchedule schedule;
+	private final RunContext context;
+	// The run's streams, or this patient's own under common random numbers
+	private RandomStreams randomStreams;
+	private final EventScheduler schedule;
 	private Facility currentFacility;
 	private boolean isolated = false;
 	private double admissionTime;
 	public ArrayList<PersonDisease> personDiseases = new ArrayList<PersonDisease>();
 	private boolean stop = false;
 	private double dischargeTime;
-	private ArrayList<Facility> facilities = new ArrayList<>();
-	private ArrayList<Disease> diseases = new ArrayList<>();
-	private ArrayList<Person> people = new ArrayList<>();
-	private ExponentialDistribution distro;
-	private HashMap<String, Object> properties;
-	public static PrintWriter surveillanceWriter;
+	private boolean importation = false;
 	private boolean noMoreEvents = false;
+	private final EventRegistry pendingEvents = new EventRegistry();
+	// Position in each PatientStore holding this patient, or -1
+	private final int[] storeSlots = { -1, -1 };
+	// PatientStore state bits this patient is counted under in its stores
+	private int countedState = 0;
 
-	public static void initSurveillanceWriter() {
-		try {
-			if (!FacilityEpiSim.isBatchRun) {
-				surveillanceWriter = new PrintWriter("surveillance.txt");
-				surveillanceWriter.printf("Time, Patient, Colonized, Detected%n");
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	public static void closeSurveillanceWriter() {
-		if (surveillanceWriter != null) {
-			surveillanceWriter.flush();
-			surveillanceWriter.close();
-			surveillanceWriter = null;
-		}
-	}
-	
 	@Override
 	public int hashCode() {
 	    // TODO Auto-generated method stub
@@ -60,14 +48,61 @@ public class Person extends Agent {
 
 
 	public Person(Facility f) {
-		super();
+		super(f.getRunContext().nextAgentId());
 		currentFacility = f;
-		schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
-		properties = new HashMap<String, Object>();
+		context = f.getRunContext();
+		schedule = context.getScheduler();
+		randomStreams = streamsFor(id);
+	}
+
+	private RandomStreams streamsFor(int id) {
+		return context.getParameters().commonRandomNumbers()
+				? context.getRandomStreams().forPatient(id)
+				: context.getRandomStreams();
+	}
+
+	/**
+	 * Returns a discharged patient to the state of a newly created one, with
+	 * the next agent id, for reuse by a {@link PersonPool}. Its diseases are
+	 * reset the same way and kept.
+	 *
+	 * @param f the admitting facility
+	 */
+	void reset(Facility f) {
+		id = context.nextAgentId();
+		if (randomStreams != context.getRandomStreams()) {
+			// The patient's own streams, re-keyed in place rather than reallocated
+			randomStreams.reseed(context.getRandomStreams().patientSeed(id));
+		} else {
+			randomStreams = streamsFor(id);
+		}
+		region = null;
+		currentFacility = f;
+		isolated = false;
+		admissionTime = 0.0;
+		stop = false;
+		dischargeTime = 0.0;
+		importation = false;
+		noMoreEvents = false;
+		pendingEvents.cancelAll(schedule);
+		for (PersonDisease pd : personDiseases) {
+			pd.reset();
+		}
+		countedState = 0;
 	}
 
-	public static void setSchedule(ISchedule sched) {
-		schedule = sched;
+	@Override
+	public void handleEvent(int eventType) {
+		switch (eventType) {
+		case EVENT_DISCHARGE:
+			doPatientDischarge();
+			break;
+		case EVENT_SURVEILLANCE_TEST:
+			doSurveillanceTest();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown Person event type " + eventType);
+		}
 	}
 
 	public void admitToFacility(Facility f) {
@@ -77,8 +112,7 @@ public class Person extends Agent {
 
 	public void startDischargeTimer(double timeToDischarge) {
 		dischargeTime = timeToDischarge;
-		schedule.schedule(ScheduleParameters.createOneTime(schedule.getTickCount() + dischargeTime), this,
-				"doPatientDischarge");
+		pendingEvents.track(schedule.schedule(schedule.getTickCount() + dischargeTime, this, EVENT_DISCHARGE));
 	}
 
 	public void destroyMyself(Region r) {
@@ -88,16 +122,49 @@ public class Person extends Agent {
 		// Context removal is now handled in Facility.dischargePatient
 	}
 
+	/**
+	 * Cancels every pending event of this patient and of its diseases
+	 * (discharge, periodic surveillance, decolonization, clinical detection),
+	 * so nothing fires for the patient after it leaves the facility.
+	 */
+	public void cancelAllEvents() {
+		pendingEvents.cancelAll(schedule);
+		for (PersonDisease pd : personDiseases) {
+			pd.cancelAllEvents();
+		}
+	}
+
 	public void startNextPeriodicSurveillanceTimer() {
 		double timeToNextSurveillance = currentFacility.getTimeBetweenMidstaySurveillanceTests();
 		if (timeToNextSurveillance < dischargeTime) {
-			schedule.schedule(ScheduleParameters.createOneTime(schedule.getTickCount() + timeToNextSurveillance), this,
-					"doSurveillanceTest");
+			pendingEvents.track(
+					schedule.schedule(schedule.getTickCount() + timeToNextSurveillance, this, EVENT_SURVEILLANCE_TEST));
 		}
 	}
 
 	public void isolate() {
 		isolated = true;
+		stateChanged();
+	}
+
+	/**
+	 * Moves this patient to its current state in the counts of the facility
+	 * and region stores holding it; called whenever its colonization,
+	 * detection or isolation changes. The state is recorded even when the
+	 * patient is in no store, so a later admission counts it correctly.
+	 */
+	public void stateChanged() {
+		int state = PatientStore.stateOf(this);
+		if (state == countedState) {
+			return;
+		}
+		if (storeSlots[PatientStore.FACILITY] >= 0) {
+			currentFacility.getCurrentPatients().recount(countedState, state);
+		}
+		if (storeSlots[PatientStore.REGION] >= 0) {
+			region.getPeople().recount(countedState, state);
+		}
+		countedState = state;
 	}
 
 	public void updateAllTransmissionRateContributions() {
@@ -111,23 +178,6 @@ public class Person extends Agent {
 		currentFacility.dischargePatient(this);
 	}
 
-	public void discharge() {
-		this.stop = false;
-		double currTime = schedule.getTickCount();
-		double elapse = distro.sample();
-		ScheduleParameters params = ScheduleParameters.createOneTime(currTime + elapse);
-		schedule.schedule(params, this, "doPatientDischarge");
-		this.dischargeTime = currTime;
-	}
-
-	public void surveillanceTest() {
-		this.stop = false;
-		double currTime = schedule.getTickCount();
-		double elapse = distro.sample();
-		ScheduleParameters params = ScheduleParameters.createOneTime(currTime + elapse);
-		schedule.schedule(params, this, "doSurveillanceTest");
-	}
-
 	public void doSurveillanceTest() {
 	    if (this.isNoMoreEvents()) {
 	        return; // Skip if the person is marked to have no more events
@@ -144,7 +194,8 @@ public class Person extends Agent {
 				} else {
 					startNextPeriodicSurveillanceTimer();
 				}
-				if (!FacilityEpiSim.isBatchRun && surveillanceWriter != null) {
+				PrintWriter surveillanceWriter = context.getSurveillanceWriter();
+				if (surveillanceWriter != null) {
 					surveillanceWriter.printf("%.2f,%d,%b,%b%n", currentTime,
 							this.hashCode(), pd.isColonized(), pd.isDetected());
 				}
@@ -152,8 +203,47 @@ public class Person extends Agent {
 		}
 	}
 
+	/**
+	 * @return a uniform draw in [0, 1) from the patient's surveillance stream
+	 */
 	public double uniform() {
-		return Math.random();
+		return randomStreams.getSurveillance().nextDouble();
+	}
+
+	/**
+	 * @return the {@link PatientStore} state bits this patient was last
+	 *         counted under
+	 */
+	public int getCountedState() {
+		return countedState;
+	}
+
+	/**
+	 * @param store the kind of store, {@link agentcontainers.PatientStore#FACILITY}
+	 *              or {@link agentcontainers.PatientStore#REGION}
+	 * @return this patient's slot in that store, or -1 if it is not in one
+	 */
+	public int getStoreSlot(int store) {
+		return storeSlots[store];
+	}
+
+	/**
+	 * Records this patient's slot in a store; only called by
+	 * {@link agentcontainers.PatientStore}.
+	 *
+	 * @param store the kind of store
+	 * @param slot  the slot, or -1 on removal
+	 */
+	public void setStoreSlot(int store, int slot) {
+		storeSlots[store] = slot;
+	}
+
+	/**
+	 * @return the streams this patient's own draws come from: the run's, or
+	 *         under common random numbers the patient's, keyed by its arrival index
+	 */
+	public RandomStreams getRandomStreams() {
+		return randomStreams;
 	}
 
 	public PersonDisease add_diseases() {
@@ -165,7 +255,7 @@ public class Person extends Agent {
 			}
 		}
 		// If not, create and add a new one
-		PersonDisease pd = new PersonDisease(disease, this, schedule);
+		PersonDisease pd = new PersonDisease(disease, this);
 		this.personDiseases.add(pd);
 		return pd;
 	}
@@ -225,40 +315,12 @@ public class Person extends Agent {
 		this.dischargeTime = dischargeTime;
 	}
 
-	public ArrayList<Facility> getFacilities() {
-		return facilities;
-	}
-
-	public void setFacilities(ArrayList<Facility> facilities) {
-		this.facilities = facilities;
-	}
-
-	public ArrayList<Disease> getDiseasesNew() {
-		return diseases;
-	}
-
-	public void setDiseasesNew(ArrayList<Disease> diseases) {
-		this.diseases = diseases;
-	}
-
-	public ArrayList<Person> getPeople() {
-		return people;
-	}
-
-	public void setPeople(ArrayList<Person> people) {
-		this.people = people;
-	}
-
-	public ExponentialDistribution getDistro() {
-		return distro;
-	}
-
-	public void setDistro(ExponentialDistribution distro) {
-		this.distro = distro;
+	public EventScheduler getSchedule() {
+		return schedule;
 	}
 
-	public static ISchedule getSchedule() {
-		return schedule;
+	public RunContext getRunContext() {
+		return context;
 	}
 
 	public void setCurrentFacility(Facility currentFacility) {
@@ -267,18 +329,21 @@ public class Person extends Agent {
 
 	public void setIsolated(boolean isolated) {
 		this.isolated = isolated;
+		stateChanged();
 	}
 
 	public void setCurrentLOS(double currentLOS) {
 	}
 
-	public void setProperty(String s, Object o) {
-		this.properties.put(s, o);
-
+	/**
+	 * @return true if the patient was colonized on admission
+	 */
+	public boolean isImportation() {
+		return importation;
 	}
 
-	public Object getProperty(String s) {
-		return this.properties.get(s);
+	public void setImportation(boolean importation) {
+		this.importation = importation;
 	}
 
 	public boolean isNoMoreEvents() {
@@ -0,0 +1,91 @@
+package agents;
+
+import java.io.Serializable;
+
+import agentcontainers.Facility;
+import agentcontainers.PatientStore;
+
+/**
+ * Recycles discharged patients of one facility for later admissions.
+ * <p>
+ * A patient is released once it has left both patient stores, its pending
+ * events are cancelled and its discharge record (if any) has been taken, so
+ * nothing in the model still refers to it. {@link #obtain(Facility)} then
+ * resets a released patient and its diseases to the state of a newly created
+ * one, under a new agent id, instead of allocating a new {@link Person} and
+ * {@link disease.PersonDisease}. At most {@code capacity} patients are kept,
+ * which bounds the pool by the census swings rather than by the run length.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class PersonPool implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final Person[] free;
+	private int size = 0;
+	private long created = 0;
+	private long reused = 0;
+
+	/**
+	 * @param capacity the most released patients to keep
+	 */
+	public PersonPool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity " + capacity + " must not be negative");
+		}
+		free = new Person[capacity];
+	}
+
+	/**
+	 * Returns a patient ready to be admitted to a facility, recycled if one is
+	 * available.
+	 *
+	 * @param f the admitting facility
+	 * @return the patient, with a new agent id
+	 */
+	public Person obtain(Facility f) {
+		if (size == 0) {
+			created++;
+			return new Person(f);
+		}
+		Person p = free[--size];
+		free[size] = null;
+		p.reset(f);
+		reused++;
+		return p;
+	}
+
+	/**
+	 * Takes back a discharged patient. The patient must no longer be
+	 * referenced by any store, outbreak tally or pending event.
+	 *
+	 * @param p the patient
+	 */
+	public void release(Person p) {
+		if (p.getStoreSlot(PatientStore.FACILITY) >= 0 || p.getStoreSlot(PatientStore.REGION) >= 0) {
+			throw new IllegalStateException("Patient " + p.hashCode() + " is still in a patient store");
+		}
+		if (size < free.length) {
+			free[size++] = p;
+		}
+	}
+
+	/**
+	 * @return the number of patients waiting to be reused
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getReused() {
+		return reused;
+	}
+}
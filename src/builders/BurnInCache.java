@@ -0,0 +1,263 @@
+package builders;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Directory of {@link BurnInSnapshot}s kept between invocations, so that a
+ * burn-in already simulated for the same epidemiological setting is loaded
+ * instead of being run again.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of
+ * {@link ModelParameters#burnInValues()}, which includes the random seed, and
+ * of the build: the model's class files. Every model class pins its
+ * {@code serialVersionUID}, so an entry written by another build could still
+ * deserialize, with new fields left at their defaults; keying on the build
+ * means such an entry is never looked up, and it ages out of the cache.
+ * Only seeded runs are cached: an unseeded run is meant to be an independent
+ * sample, so reusing another run's burn-in would make replications identical.
+ * Reading an entry marks it as recently used; after each new entry is written,
+ * the least recently used entries are deleted until the directory fits in the
+ * size budget. Unreadable entries are deleted and simulated again.
+ * </p>
+ */
+public class BurnInCache {
+
+	static final String SUFFIX = ".burnin";
+	/** Changes whenever the serialized form of the model changes incompatibly. */
+	static final int FORMAT_VERSION = 2;
+
+	private static String buildFingerprint;
+
+	private final File directory;
+	private final long maxBytes;
+	private int hits = 0;
+	private int misses = 0;
+
+	/**
+	 * @param directory the cache directory, created if needed
+	 * @param maxBytes  the size budget of the cached entries, in bytes
+	 */
+	public BurnInCache(File directory, long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes " + maxBytes + " must be positive");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the burn-in of a run, loading it from the cache if present and
+	 * otherwise simulating it and, for a seeded run, storing it.
+	 *
+	 * @param params the resolved parameters of the run
+	 * @return the snapshot
+	 */
+	public BurnInSnapshot burnIn(ModelParameters params) {
+		if (!params.hasRandomSeed()) {
+			return BurnInSnapshot.burnIn(params);
+		}
+		File entry = entryFile(params);
+		BurnInSnapshot snapshot = load(entry, params);
+		if (snapshot != null) {
+			recordHit();
+			return snapshot;
+		}
+		recordMiss();
+		snapshot = BurnInSnapshot.burnIn(params);
+		store(entry, snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * @param params the resolved parameters of a run
+	 * @return the file holding the run's cached burn-in
+	 */
+	public File entryFile(ModelParameters params) {
+		return new File(directory, key(params) + SUFFIX);
+	}
+
+	/**
+	 * @param params the resolved parameters of a run
+	 * @return the hex SHA-256 hash of the run's burn-in parameters
+	 */
+	static String key(ModelParameters params) {
+		StringBuilder text = new StringBuilder("version=").append(FORMAT_VERSION).append('\n');
+		text.append("build=").append(buildFingerprint()).append('\n');
+		for (Map.Entry<String, Object> e : params.burnInValues().entrySet()) {
+			text.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+		}
+		return hex(sha256().digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Hashes the class files of the build this class was loaded from: every
+	 * class under its classes directory, or the whole jar. Computed once per
+	 * JVM.
+	 *
+	 * @return the hex SHA-256 hash, or "unknown" if the class files cannot be read
+	 */
+	static synchronized String buildFingerprint() {
+		if (buildFingerprint == null) {
+			buildFingerprint = computeBuildFingerprint();
+		}
+		return buildFingerprint;
+	}
+
+	private static String computeBuildFingerprint() {
+		CodeSource source = BurnInCache.class.getProtectionDomain().getCodeSource();
+		if (source == null || source.getLocation() == null) {
+			System.err.println("Cannot locate the model classes; burn-in cache entries are keyed by FORMAT_VERSION only");
+			return "unknown";
+		}
+		try {
+			MessageDigest digest = sha256();
+			Path root = Paths.get(source.getLocation().toURI());
+			if (Files.isDirectory(root)) {
+				List<Path> classes;
+				try (Stream<Path> files = Files.walk(root)) {
+					classes = files.filter(f -> f.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+				}
+				for (Path f : classes) {
+					digest.update(root.relativize(f).toString().getBytes(StandardCharsets.UTF_8));
+					digest.update(Files.readAllBytes(f));
+				}
+			} else {
+				digest.update(Files.readAllBytes(root));
+			}
+			return hex(digest.digest());
+		} catch (IOException | URISyntaxException e) {
+			System.err.println("Cannot read the model classes (" + e
+					+ "); burn-in cache entries are keyed by FORMAT_VERSION only");
+			return "unknown";
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static String hex(byte[] hash) {
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private BurnInSnapshot load(File entry, ModelParameters params) {
+		if (!entry.isFile()) {
+			return null;
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+			BurnInSnapshot snapshot = (BurnInSnapshot) in.readObject();
+			if (!snapshot.getParameters().hasSameBurnIn(params)) {
+				return null;
+			}
+			entry.setLastModified(System.currentTimeMillis());
+			return snapshot;
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			System.err.println("Discarding unreadable burn-in cache entry " + entry + ": " + e);
+			entry.delete();
+			return null;
+		}
+	}
+
+	private void store(File entry, BurnInSnapshot snapshot) {
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Cannot create cache directory " + directory);
+			}
+			// Written under a temporary name, so readers never see a partial entry.
+			File temp = File.createTempFile("entry", ".tmp", directory);
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeObject(snapshot);
+			}
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Cannot write burn-in cache entry " + entry + ": " + e);
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache fits in its
+	 * size budget.
+	 */
+	public synchronized void evict() {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (entries == null) {
+			return;
+		}
+		// Read once, so another invocation sharing the directory cannot change
+		// the sort keys mid-sort
+		long[] modified = new long[entries.length];
+		long[] lengths = new long[entries.length];
+		Integer[] order = new Integer[entries.length];
+		long total = 0;
+		for (int i = 0; i < entries.length; i++) {
+			modified[i] = entries[i].lastModified();
+			lengths[i] = entries[i].length();
+			order[i] = i;
+			total += lengths[i];
+		}
+		Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+		for (int k = 0; k < order.length && total > maxBytes; k++) {
+			int i = order[k];
+			if (entries[i].delete()) {
+				total -= lengths[i];
+			}
+		}
+	}
+
+	private synchronized void recordHit() {
+		hits++;
+	}
+
+	private synchronized void recordMiss() {
+		misses++;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,143 @@
+package builders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+import engine.HeapScheduler;
+import engine.ScheduledEvent;
+
+/**
+ * Complete state of a run at the end of its burn-in period, from which any
+ * number of post-burn-in arms can be forked.
+ * <p>
+ * The snapshot is the serialized object graph reachable from the
+ * {@link FacilityEpiSim}: the region, facility, patients and their disease
+ * state, the outbreak tallies, the random generators and the scheduler with
+ * every pending event. It is taken just before the end-of-burn-in event
+ * fires, so each fork starts from an identical copy and then applies its own
+ * surveillance parameters in {@link FacilityEpiSim#doEndBurnInPeriod()}. Forks
+ * share the burn-in's random state, so arms are compared under common random
+ * numbers.
+ * </p>
+ * <p>
+ * Only runs on a {@link HeapScheduler} can be captured; the Repast schedule
+ * holds its actions outside the model. Output files are not part of the
+ * snapshot: a fork writes only the post-burn-in period to its own directory.
+ * Snapshots can be kept between invocations in a {@link BurnInCache}.
+ * </p>
+ */
+public final class BurnInSnapshot implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final byte[] state;
+	private final ModelParameters params;
+	private final double time;
+
+	private BurnInSnapshot(byte[] state, ModelParameters params, double time) {
+		this.state = state;
+		this.params = params;
+		this.time = time;
+	}
+
+	/**
+	 * Runs the burn-in period of a run and captures its state.
+	 *
+	 * @param params the resolved parameters of the run; only the burn-in
+	 *               parameters matter, and no output files are written
+	 * @return the snapshot
+	 */
+	public static BurnInSnapshot burnIn(ModelParameters params) {
+		ModelParameters batch = params.with(Collections.singletonMap("isBatchRun", true));
+		HeapScheduler scheduler = new HeapScheduler();
+		FacilityEpiSim model = new FacilityEpiSim();
+		model.initialize(new RunContext(scheduler, batch, new File(".")));
+		// The end of burn-in may be brought forward by steady-state detection,
+		// so stop just before that event rather than at a fixed tick.
+		ScheduledEvent endBurnIn = model.getEndBurnInEvent();
+		while (endBurnIn.isPending() && scheduler.getNextEvent() != endBurnIn) {
+			scheduler.step();
+		}
+		return capture(model);
+	}
+
+	/**
+	 * Captures a run whose burn-in period has not yet ended.
+	 *
+	 * @param model a run driven by a {@link HeapScheduler}, between events
+	 * @return the snapshot
+	 * @throws IllegalArgumentException if the run is not on a {@link HeapScheduler}
+	 * @throws IllegalStateException    if the burn-in period has already ended
+	 */
+	public static BurnInSnapshot capture(FacilityEpiSim model) {
+		if (!(model.getSchedule() instanceof HeapScheduler)) {
+			throw new IllegalArgumentException("Only runs on a HeapScheduler can be captured");
+		}
+		if (!model.getRegion().isInBurnInPeriod()) {
+			throw new IllegalStateException("The burn-in period of this run has already ended");
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(model);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot capture burn-in state", e);
+		}
+		return new BurnInSnapshot(bytes.toByteArray(), model.getParameters(), model.getSchedule().getTickCount());
+	}
+
+	/**
+	 * Restores a copy of the captured run and continues it with the
+	 * post-burn-in parameters of one arm. The snapshot itself is unchanged, so
+	 * it can be forked any number of times, from any thread.
+	 *
+	 * @param arm             the resolved parameters of the arm
+	 * @param outputDirectory directory the arm's output files are written to
+	 * @return the restored run, ready to be driven by its {@link HeapScheduler}
+	 * @throws IllegalArgumentException if the arm would have had a different burn-in
+	 */
+	public FacilityEpiSim fork(ModelParameters arm, File outputDirectory) {
+		if (!params.hasSameBurnIn(arm)) {
+			throw new IllegalArgumentException("Cannot fork a run with different burn-in parameters from this snapshot");
+		}
+		FacilityEpiSim model = restore();
+		model.resume(arm, outputDirectory);
+		return model;
+	}
+
+	private FacilityEpiSim restore() {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+			return (FacilityEpiSim) in.readObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot restore burn-in state", e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Cannot restore burn-in state", e);
+		}
+	}
+
+	/**
+	 * @return the parameters the burn-in was run with
+	 */
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	/**
+	 * @return the tick at which the snapshot was taken
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the size of the serialized state in bytes
+	 */
+	public int getSize() {
+		return state.length;
+	}
+}
@@ -2,28 +2,26 @@ package builders;
 
 import disease.Disease;
 import disease.FacilityOutbreak;
-import disease.PersonDisease;
 import processes.Admission;
-import repast.simphony.context.Context;
-import repast.simphony.dataLoader.ContextBuilder;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ScheduleParameters;
-import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.parameter.Parameters;
 import agentcontainers.Facility;
+import agentcontainers.PatientStore;
 import agentcontainers.Region;
 import agents.DischargedPatient;
 import agents.Person;
+import engine.EventScheduler;
+import engine.EventTarget;
+import engine.ScheduledEvent;
 import utils.MixedGamma;
+import utils.SteadyStateDetector;
 
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 
 // Notes for TODO items:
@@ -34,28 +32,51 @@ import java.util.List;
 //these all go in 
 // Do several batches with days betweeen and DoActiveSurveillanceAfterBurnIn
 
-public class FacilityEpiSim implements ContextBuilder<Object> {
-	private ISchedule schedule;
+/**
+ * Simulation controller for a single run: creates the region, facility and
+ * initial patients, schedules the daily, burn-in and end-of-run events, and
+ * writes the run outputs.
+ * <p>
+ * This class has no Repast dependency. Under Repast it is created by
+ * {@link FacilityEpiSimBuilder}; {@link HeadlessRunner} drives it directly on an
+ * {@link engine.HeapScheduler}.
+ * </p>
+ */
+public class FacilityEpiSim implements EventTarget, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int EVENT_DAILY = 1;
+	public static final int EVENT_END_BURN_IN = 2;
+	public static final int EVENT_SIMULATION_END = 3;
+
+	/** Batches (of five days) needed before the burn-in can end at steady state. */
+	private static final int STEADY_STATE_MIN_BATCHES = 20;
+
+	private EventScheduler schedule;
 	private double isolationEffectiveness;
 	private boolean doActiveSurveillance = false;
 	private boolean doActiveSurveillanceAfterBurnIn = true;
 	private double daysBetweenTests = 14.0;
-	private PrintWriter facilityPrevalenceData;
-	private PrintWriter R0Data;
+	private transient PrintWriter facilityPrevalenceData;
+	private transient PrintWriter R0Data;
 	private Region region;
 	private double burnInTime = 10 * 365.0;
 	private double postBurnInTime = 5 * 365.0;
 	private double totalTime = burnInTime + postBurnInTime;
+	private ScheduledEvent endBurnInEvent;
+	// Set when the burn-in ends once the daily series reach steady state
+	private double minBurnInTime;
+	private SteadyStateDetector prevalenceDetector;
+	private SteadyStateDetector censusDetector;
+	private double burnInEndTime = -1.0;
 	public Facility facility;
 	private boolean stop = false;
-	private Parameters params;
-	private List<Double> dailyPrevalenceSamples;
-	public ArrayList<String> dailyPrev;
-	private PrintWriter simulationOutputFile;
-	public static boolean isBatchRun;
-	private PrintWriter dailyStatsWriter;
-	public ArrayList<DischargedPatient> dischargedPatients ;
-	private Context<Object> context;
+	private ModelParameters params;
+	private RunContext context;
+	private transient PrintWriter simulationOutputFile;
+	private transient PrintWriter dailyStatsWriter;
+	private transient PrintWriter dailyPrevalenceWriter;
+	private transient PrintWriter dischargedPatientsWriter;
 	private double admissionsIntraEventTime = 21.1199 / 75.0;
 	private int[] facilitySize = { 75 };
 	private int[] facilityType = { 0 };
@@ -67,46 +88,73 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 	private double shape2;
 	private double scale2;
 	private double prob1;
-	
-	private List<Double> daily_prevalences = new ArrayList<Double>();
+	private boolean useTauLeaping = false;
+	private double tauLeapEpsilon = 0.03;
+
+	/**
+	 * Creates the region, facility and initial patients and schedules the
+	 * opening events on the given scheduler. Called by
+	 * {@link FacilityEpiSimBuilder#build} with the Repast schedule, or by
+	 * {@link HeadlessRunner} with a {@link engine.HeapScheduler}.
+	 *
+	 * @param scheduler the event scheduler that will drive this run
+	 * @param parameters the resolved parameters of this run
+	 */
+	public void initialize(EventScheduler scheduler, ModelParameters parameters) {
+		initialize(new RunContext(scheduler, parameters, new File(".")));
+	}
 
-	@Override
-	public Context<Object> build(Context<Object> context) {
-		this.context = context;
-		// System.out.println("Starting simulation build.");
-		schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
-
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		this.daily_prevalences = new ArrayList<Double>();
-		this.dailyPrev = new ArrayList<String>();
-		this.dailyPrevalenceSamples = new ArrayList<Double>();
-		this.dischargedPatients = new ArrayList<DischargedPatient>();
+	/**
+	 * Creates the region, facility and initial patients of a run and schedules
+	 * the opening events on the run's scheduler.
+	 *
+	 * @param runContext the scheduler, parameters and output directory of this run
+	 */
+	public void initialize(RunContext runContext) {
+		context = runContext;
+		schedule = runContext.getScheduler();
+
+		params = runContext.getParameters();
+		// Logged so a run without a randomSeed can still be reproduced
+		System.out.println("Random seed: " + runContext.getRandomStreams().getRootSeed());
 		
-		double is = params.getDouble("isolationEffectiveness");
-		shape1 = params.getDouble("shape1");
-		scale1 = params.getDouble("scale1");
-		shape2 = params.getDouble("shape2");
-		scale2 = params.getDouble("scale2");
-		prob1 = params.getDouble("prob1");
-
-		isolationEffectiveness = params.getDouble("isolationEffectiveness");
-		doActiveSurveillanceAfterBurnIn = params.getBoolean("doActiveSurveillanceAfterBurnIn");
-		daysBetweenTests = params.getDouble("daysBetweenTests");
-		isBatchRun = params.getBoolean("isBatchRun");
-		Person.initSurveillanceWriter();
-
-		facility = new Facility();
+		shape1 = params.getShape1();
+		scale1 = params.getScale1();
+		shape2 = params.getShape2();
+		scale2 = params.getScale2();
+		prob1 = params.getProb1();
+
+		isolationEffectiveness = params.getIsolationEffectiveness();
+		doActiveSurveillanceAfterBurnIn = params.doActiveSurveillanceAfterBurnIn();
+		daysBetweenTests = params.getDaysBetweenTests();
+		useTauLeaping = params.useTauLeaping();
+		tauLeapEpsilon = params.getTauLeapEpsilon();
+		burnInTime = params.getBurnInPeriod();
+		totalTime = params.getSimulationDuration();
+		postBurnInTime = totalTime - burnInTime;
+		if (params.adaptiveBurnIn()) {
+			minBurnInTime = params.getMinBurnInPeriod();
+			prevalenceDetector = new SteadyStateDetector(SteadyStateDetector.MSER_5, STEADY_STATE_MIN_BATCHES);
+			censusDetector = new SteadyStateDetector(SteadyStateDetector.MSER_5, STEADY_STATE_MIN_BATCHES);
+		}
+		context.openEventLogs();
+		openOutputs();
+
+		facility = new Facility(context);
+		facility.setSimulationBuilder(this);
+		facility.setParameters(params);
 		facility.setShape1(shape1);
 		facility.setScale1(scale1);
 		facility.setShape2(shape2);
 		facility.setScale2(scale2);
 		facility.setProb1(prob1);
-		MixedGamma mixedGamma = new MixedGamma(shape1, scale1, shape2, scale2, prob1);
+		MixedGamma mixedGamma = new MixedGamma(context.getRandomStreams().getLengthOfStay(), shape1, scale1, shape2, scale2, prob1);
 		facility.setMeanLOS(mixedGamma.getNumericalMean());
 		meanLOS = new double[] { facility.getMeanLOS() };
 		System.out.println("Mean LOS set to: " + facility.getMeanLOS());
 		this.region = new Region(facility);
 		facility.setRegion(region);
+		region.setParameters(params);
 		setupAgents();
 
 		scheduleEvents();
@@ -115,14 +163,64 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 		Admission admit = new Admission(admissionsIntraEventTime, facility);
 		admit.start();
 
-		// Oct 4, 2024 WRR: schedule annotated methods on this builder class.
-		schedule.schedule(this);
+		// Oct 4, 2024 WRR: schedule the daily events on this builder class.
+		schedule.scheduleRepeating(1.0, 1.0, this, EVENT_DAILY);
+	}
 
-		context.add(region);
-		context.add(this);
-		// Oct 4, 2024 WRR: return facility?
-	
-		return context;
+	/**
+	 * Continues a run restored from a {@link BurnInSnapshot} as one arm of a
+	 * sweep. The arm's post-burn-in parameters take effect when the pending
+	 * end-of-burn-in event fires, and its output files are opened in the given
+	 * directory.
+	 *
+	 * @param arm             the resolved parameters of the arm
+	 * @param outputDirectory directory the arm's output files are written to
+	 * @throws IllegalArgumentException if the arm would have had a different burn-in
+	 * @throws IllegalStateException    if the burn-in period has already ended
+	 */
+	void resume(ModelParameters arm, File outputDirectory) {
+		if (!params.hasSameBurnIn(arm)) {
+			throw new IllegalArgumentException("Cannot fork a run with different burn-in parameters from this snapshot");
+		}
+		if (!region.isInBurnInPeriod()) {
+			throw new IllegalStateException("Cannot fork a run after its burn-in period has ended");
+		}
+		params = arm;
+		totalTime = arm.getSimulationDuration();
+		postBurnInTime = totalTime - arm.getBurnInPeriod();
+		context.resume(arm, outputDirectory);
+		doActiveSurveillanceAfterBurnIn = arm.doActiveSurveillanceAfterBurnIn();
+		daysBetweenTests = arm.getDaysBetweenTests();
+		region.setParameters(arm);
+		openOutputs();
+		region.openOutputs();
+		for (Facility f : region.getFacilities()) {
+			f.openOutputs();
+			for (FacilityOutbreak fo : f.getOutbreaks()) {
+				fo.openLogWriter(context);
+			}
+		}
+	}
+
+	@Override
+	public void handleEvent(int eventType) {
+		switch (eventType) {
+		case EVENT_DAILY:
+			dailyEvents();
+			break;
+		case EVENT_END_BURN_IN:
+			doEndBurnInPeriod();
+			break;
+		case EVENT_SIMULATION_END:
+			try {
+				doSimulationEnd();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown FacilityEpiSim event type " + eventType);
+		}
 	}
 
 	// Oct 4, 2024 WRR: Here's one possible implementation of regular repeating
@@ -130,72 +228,73 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 	// example, like the Region.dailyPopulationTally event that Damon has described
 	// in the text file.
 
-	@ScheduledMethod(start = 1.0, interval = 1)
 	public void dailyEvents() {
-	    
-	    Facility fac = this.facility;
-	    int infectedCount = 0;
-	    int total = 0;
-	    for(Person p : fac.getCurrentPatients()) {
-	        total++;
-	        if (p.personDiseases.get(0).isColonized()) {
-	            infectedCount++;
-	        }
-	        this.daily_prevalences.add((double) infectedCount / total);
+	    // Summary prevalence is integrated by the outbreaks, so a batch run only
+	    // needs this pass to detect steady state or to audit the counters
+	    if (context.isBatchRun() && !params.auditCounters()
+	            && !(prevalenceDetector != null && region.isInBurnInPeriod())) {
+	        return;
 	    }
 	    
+	    Facility fac = this.facility;
 	    
 		if (facility.getPopulationSize() != 0) {
-			region.doPopulationTally();
 			region.logDailyPopulationStats();
 		}
-		double dailyPrevalence = 0.0;
-        int count = 0;
-        for (Facility f : region.getFacilities()) {
-            for (FacilityOutbreak outbreak : f.getOutbreaks()) {
-                dailyPrevalence += outbreak.getPrevalence();
-                count++;
-            }
-        }
-        if (count > 0) {
-            dailyPrevalenceSamples.add(dailyPrevalence / count);
-        }
         
-        int colonized = 0;
-        for (Person p : facility.getCurrentPatients()) {
-		if (p.personDiseases.get(0).isColonized()) {
-			colonized++;
-		}
-	}
-        // do the same for p.personDiseases.get(0).isDetected()
-       int detected = 0;
-       for (Person p : facility.getCurrentPatients()) {
-	   
-	   if (p.personDiseases.get(0).isDetected()) {
-	   detected++;
-       }
-       }
-       
-       int isolated = 0;
-       for (Person p : facility.getCurrentPatients()) {
-	   if (p.isIsolated()) {
-	       isolated++;
-       }
-       }
+        // Running counts kept by the patient store at each state change
+        PatientStore patients = facility.getCurrentPatients();
+        if (params.auditCounters()) {
+            patients.audit();
+            region.getPeople().audit();
+        }
+        int colonized = patients.countColonized();
+        int detected = patients.countDetected();
+        int isolated = patients.countIsolated();
 	 
+        if (prevalenceDetector != null && region.isInBurnInPeriod()) {
+            checkSteadyState(fac.getPopulationSize(), colonized);
+        }
         
         if (!region.isInBurnInPeriod()) {
             double currentTime = schedule.getTickCount();
-            dailyPrev.add(String.format("%.2f,%d,%d,%d,%d%n", currentTime, facility.getPopulationSize(), colonized, detected, isolated));
+            if (dailyPrevalenceWriter != null) {
+                dailyPrevalenceWriter.printf("%.2f,%d,%d,%d,%d%n", currentTime, facility.getPopulationSize(), colonized, detected, isolated);
+            }
         }
 	}
 
+	/**
+	 * Feeds one day of colonized prevalence and census to the steady-state
+	 * detectors and, once both have settled and the minimum burn-in has
+	 * passed, moves the end-of-burn-in event to the current tick.
+	 *
+	 * @param census    the number of patients in the facility
+	 * @param colonized the number of colonized patients
+	 */
+	private void checkSteadyState(int census, int colonized) {
+		prevalenceDetector.add(census > 0 ? (double) colonized / census : 0.0);
+		if (!censusDetector.add(census)) {
+			return;
+		}
+		double currentTime = schedule.getTickCount();
+		if (currentTime < minBurnInTime || !endBurnInEvent.isPending() || endBurnInEvent.getTime() <= currentTime) {
+			return;
+		}
+		if (prevalenceDetector.isSteady() && censusDetector.isSteady()) {
+			System.out.println("Steady state reached at tick " + currentTime + " (warm-up "
+					+ prevalenceDetector.getWarmUpLength() + " days); ending burn-in");
+			schedule.reschedule(endBurnInEvent, currentTime);
+		}
+	}
+
 	public void setupAgents() {
 		// System.out.println("Setting up AGENTS");
 
 		 // Generic disease type ID
 		for (int i = 0; i < numDiseases; i++) {
 			Disease disease = new Disease();
+			disease.setParameters(params);
 			disease.setSimIndex(i);
 			disease.setType(diseaseList[i]);
 			region.getDiseases().add(disease);
@@ -222,6 +321,7 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 				fo.setDisease(d);
 				fo.setDiseaseName(d.getDiseaseName());
 				fo.facility = f;
+				fo.setTauLeaping(useTauLeaping, tauLeapEpsilon);
 			}
 
 			for (int j = 0; j < facilitySize[i]; j++) {
@@ -234,7 +334,7 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 
 	public void scheduleEvents() {
 		// System.out.println("Scheduling events.");
-		schedule.schedule(ScheduleParameters.createOneTime(burnInTime), this, "doEndBurnInPeriod");
+		endBurnInEvent = schedule.schedule(burnInTime, this, EVENT_END_BURN_IN);
 
 		System.out.println("Scheduled burn-in end at tick: " + burnInTime);
 		System.out.println("Scheduled simulation end at tick: " + totalTime);
@@ -249,14 +349,21 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 		// Oct 4, 2024 WRR:this should be rolled into scheduleEvents(). The schedule is
 		// an
 		// event queuing system. It holds and sorts as many events as you give it.
-		schedule.schedule(ScheduleParameters.createOneTime(totalTime), this, "doSimulationEnd");
+		// The measured period keeps its length when the burn-in ends early.
+		totalTime = schedule.getTickCount() + postBurnInTime;
+		schedule.schedule(totalTime, this, EVENT_SIMULATION_END);
 
 	}
 
 	public void doEndBurnInPeriod() {
+		burnInEndTime = schedule.getTickCount();
 
 		region.setInBurnInPeriod(false);
-		region.startDailyPopulationTallyTimer();
+		for (Facility f : region.getFacilities()) {
+			for (FacilityOutbreak fo : f.getOutbreaks()) {
+				fo.startMeasurementWindow();
+			}
+		}
 		doActiveSurveillance = doActiveSurveillanceAfterBurnIn;
 		if (doActiveSurveillance) {
 			for (Facility f : region.getFacilities()) {
@@ -269,55 +376,66 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 	}
 
 	public int getClinicalDetections() {
-		return PersonDisease.clinicalOutputNum;
+		return context.getClinicalDetections();
 	}
 	
-	public void writeDailyPrevToFile() {
-	    try (PrintWriter writer = new PrintWriter(new FileWriter("daily_prevalence.txt"))) {
-	        writer.println("Time,TotalPatients,Colonized,Detected,Isolated");
-	        for (String line : dailyPrev) {
-	            writer.print(line);
-	        }
-	    } catch (IOException e) {
-	        e.printStackTrace();
-	    }
-	}
-	
-	public void writeDischargedPatientFile() {
-		try (PrintWriter writer = new PrintWriter(new FileWriter("discharged_patients.csv"))) {
-			// Write the header from DischargedPatient.getHeader()
-			writer.println(DischargedPatient.getHeader());
-			
-			// Write each discharged patient as a row using toString()
-			for (DischargedPatient patient : dischargedPatients) {
-				writer.println(patient.toString());
-			}
+	/**
+	 * Opens daily_prevalence.txt and discharged_patients.csv, unless this is
+	 * a batch run. Their rows are written as the days and discharges happen
+	 * rather than kept until the end of the run.
+	 */
+	public void openOutputs() {
+		if (context.isBatchRun()) {
+			return;
+		}
+		try {
+			dailyPrevalenceWriter = context.openWriter("daily_prevalence.txt");
+			dailyPrevalenceWriter.println("Time,TotalPatients,Colonized,Detected,Isolated");
+			dischargedPatientsWriter = context.openWriter("discharged_patients.csv");
+			dischargedPatientsWriter.println(DischargedPatient.getHeader());
 		} catch (IOException e) {
-		 e.printStackTrace();
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a discharged patient's row to discharged_patients.csv, if it is
+	 * open.
+	 *
+	 * @param p the patient, before it is released for reuse
+	 */
+	public void recordDischarge(Person p) {
+		if (dischargedPatientsWriter != null) {
+			dischargedPatientsWriter.println(new DischargedPatient(p));
+		}
+	}
+
+	private void closeOutputs() {
+		if (dailyPrevalenceWriter != null) {
+			dailyPrevalenceWriter.close();
+			dailyPrevalenceWriter = null;
+		}
+		if (dischargedPatientsWriter != null) {
+			dischargedPatientsWriter.close();
+			dischargedPatientsWriter = null;
 		}
 	}
 
 	public void doSimulationEnd() throws IOException {
 	    System.out.println("Simulation ending at tick: " + schedule.getTickCount());
-	    PersonDisease.clinicalOutputNum = 0; // Reset clinical detection count for next run
-	    PersonDisease.surveillanceOutputNum = 0; // Reset surveillance detection count for next run
 	    
 	    
-	    if (!params.getBoolean("isBatchRun")) {
-	        writeDailyPrevToFile();
-	        writeDischargedPatientFile();
-	    }
+	    closeOutputs();
 	    
 	    
 
 
 
-		simulationOutputFile = new PrintWriter("simulation_results.txt");
+		simulationOutputFile = context.openWriter("simulation_results.txt");
 		simulationOutputFile.println(
-				"surveillance_after_burn_in, isolation_effectiveness, days_between_tests, clinical_detections, mean_daily_prevalence, mean_discharge_prevalence, importation_prevalence, number_of_transmissions, sum_daily_infected, sum_daily_clinical_detections"
+				"surveillance_after_burn_in, isolation_effectiveness, days_between_tests, clinical_detections, mean_daily_prevalence, mean_discharge_prevalence, importation_prevalence, number_of_transmissions, mean_census, mean_isolated"
 		);
-		simulationOutputFile.println(doActiveSurveillanceAfterBurnIn + "," + isolationEffectiveness + ","
-				+ daysBetweenTests + "," + getClinicalDetections() + "," + getMeanDailyPrevalence() + "," + getMeanDischargePrevalence() + "," + getImportationPrevalence() + "," + getNumberOfTransmissions());
+		simulationOutputFile.println(getSummaryRow());
 		simulationOutputFile.flush();
 		simulationOutputFile.close();
 		
@@ -333,11 +451,10 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 	        }
 	    }
 	    region.finishSimulation();
-	    PersonDisease.closeWriters();
-	    Person.closeSurveillanceWriter();
+	    context.closeEventLogs();
 	    System.out.println("Simulation ended.");
 	    // repast.simphony.engine.environment.RunEnvironment.getInstance().endAt(totalTime);
-	    repast.simphony.engine.environment.RunEnvironment.getInstance().endRun();
+	    schedule.endRun();
 
 	}
 	/*
@@ -351,6 +468,21 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 	 * region.numTransmissionsFromInitialCase); R0Data.println(); }
 	 */
 
+	/**
+	 * Column names of the values in {@link #getSummaryRow()}.
+	 */
+	public static final String SUMMARY_HEADER = "surveillance_after_burn_in,isolation_effectiveness,days_between_tests,"
+			+ "clinical_detections,mean_daily_prevalence,mean_discharge_prevalence,importation_prevalence,"
+			+ "number_of_transmissions,mean_census,mean_isolated";
+
+	/**
+	 * @return the run's summary values, as written to simulation_results.txt
+	 */
+	public String getSummaryRow() {
+		return doActiveSurveillanceAfterBurnIn + "," + isolationEffectiveness + ","
+				+ daysBetweenTests + "," + getClinicalDetections() + "," + getMeanDailyPrevalence() + "," + getMeanDischargePrevalence() + "," + getImportationPrevalence() + "," + getNumberOfTransmissions() + "," + getMeanCensus() + "," + getMeanIsolated();
+	}
+
 	public int getNumberOfTransmissions() {
 		int numberOfTransmissions = 0;
 		for (Facility f : region.getFacilities()) {
@@ -361,16 +493,39 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 		return numberOfTransmissions;
 	}
 
+	/**
+	 * @return the colonized prevalence averaged over patient-time since the
+	 *         end of the burn-in period, averaged over the outbreaks
+	 */
 	public double getMeanDailyPrevalence() {
-	    double sum = 0.0;
-	    int n = daily_prevalences.size();
-	
-	    for (Double dp : daily_prevalences) {
-	        sum += dp;
-	    }
-	    System.out.println("Prevalence: " + sum + "/" + n);
-	    return sum/n;
-	    
+		return averageOverOutbreaks(FacilityOutbreak::getTimeAveragedPrevalence);
+	}
+
+	/**
+	 * @return the mean number of patients since the end of the burn-in period
+	 */
+	public double getMeanCensus() {
+		return averageOverOutbreaks(FacilityOutbreak::getTimeAveragedCensus);
+	}
+
+	/**
+	 * @return the mean number of isolated patients since the end of the
+	 *         burn-in period
+	 */
+	public double getMeanIsolated() {
+		return averageOverOutbreaks(FacilityOutbreak::getTimeAveragedIsolated);
+	}
+
+	private double averageOverOutbreaks(ToDoubleFunction<FacilityOutbreak> statistic) {
+		double total = 0.0;
+		int count = 0;
+		for (Facility f : region.getFacilities()) {
+			for (FacilityOutbreak outbreak : f.getOutbreaks()) {
+				total += statistic.applyAsDouble(outbreak);
+				count++;
+			}
+		}
+		return count > 0 ? total / count : 0.0;
 	}
 
     public double getMeanDischargePrevalence() {
@@ -397,11 +552,11 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
         return count > 0 ? totalImportationPrevalence / count : 0.0;
     }
 
-	public ISchedule getSchedule() {
+	public EventScheduler getSchedule() {
 		return schedule;
 	}
 
-	public void setSchedule(ISchedule schedule) {
+	public void setSchedule(EventScheduler schedule) {
 		this.schedule = schedule;
 	}
 
@@ -461,6 +616,17 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 		this.burnInTime = burnInTime;
 	}
 
+	/**
+	 * @return the tick at which the burn-in ended, or -1 while it lasts
+	 */
+	public double getBurnInEndTime() {
+		return burnInEndTime;
+	}
+
+	ScheduledEvent getEndBurnInEvent() {
+		return endBurnInEvent;
+	}
+
 	public double getPostBurnInTime() {
 		return postBurnInTime;
 	}
@@ -493,8 +659,31 @@ public class FacilityEpiSim implements ContextBuilder<Object> {
 		this.stop = stop;
 	}
 
-	public Context<Object> getContext() {
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	public RunContext getRunContext() {
 		return context;
 	}
 
+	/**
+	 * Adds a patient that has entered the simulation to the surrounding
+	 * runtime, if it displays patients. Headless runs keep patients only in
+	 * the facility and region stores.
+	 *
+	 * @param agent the arriving agent
+	 */
+	public void addAgent(Object agent) {
+	}
+
+	/**
+	 * Removes an agent that has left the simulation from the surrounding
+	 * runtime, if any. There is nothing to remove from when running headless.
+	 *
+	 * @param agent the departing agent
+	 */
+	public void removeAgent(Object agent) {
+	}
+
 }
@@ -0,0 +1,72 @@
+package builders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import engine.RepastScheduler;
+import repast.simphony.context.Context;
+import repast.simphony.dataLoader.ContextBuilder;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.parameter.Parameters;
+
+/**
+ * Repast Simphony entry point. Builds a {@link FacilityEpiSim} run on the
+ * Repast schedule with the parameters of the current Repast run, and adds the
+ * region and controller to the root context for the data sets and GUI.
+ * Patients join the context only when {@code displayPatients} is set, so
+ * admissions and discharges do no context bookkeeping unless a display
+ * shows them.
+ */
+public class FacilityEpiSimBuilder extends FacilityEpiSim implements ContextBuilder<Object> {
+	private static final long serialVersionUID = 1L;
+
+	private transient Context<Object> context;
+	private boolean displayPatients;
+
+	@Override
+	public Context<Object> build(Context<Object> context) {
+		this.context = context;
+		// System.out.println("Starting simulation build.");
+		ModelParameters parameters = resolve(RunEnvironment.getInstance().getParameters());
+		displayPatients = parameters.displayPatients();
+		initialize(new RepastScheduler(RunEnvironment.getInstance().getCurrentSchedule()), parameters);
+
+		context.add(getRegion());
+		context.add(this);
+		// Oct 4, 2024 WRR: return facility?
+
+		return context;
+	}
+
+	/**
+	 * Resolves the parameters of the current Repast run.
+	 *
+	 * @param params the Repast run parameters
+	 * @return the validated snapshot
+	 */
+	static ModelParameters resolve(Parameters params) {
+		Map<String, Object> source = new LinkedHashMap<>();
+		for (String name : params.getSchema().parameterNames()) {
+			source.put(name, params.getValue(name));
+		}
+		return ModelParameters.fromMap(source);
+	}
+
+	@Override
+	public void addAgent(Object agent) {
+		if (displayPatients && context != null) {
+			context.add(agent);
+		}
+	}
+
+	@Override
+	public void removeAgent(Object agent) {
+		if (displayPatients && context != null) {
+			context.remove(agent);
+		}
+	}
+
+	public Context<Object> getContext() {
+		return context;
+	}
+}
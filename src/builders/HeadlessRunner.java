@@ -0,0 +1,196 @@
+package builders;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.HeapScheduler;
+import utils.RandomStreams;
+
+/**
+ * Command-line entry point that runs the model without the Repast runtime.
+ * <p>
+ * Parameters start from the defaults in {@code parameters.xml}. With
+ * {@code -b}, the runs of a {@code batch_params.xml} sweep are executed one
+ * after another; otherwise a single run is made. Trailing
+ * {@code name=value} arguments override both. Each run is built by
+ * {@link FacilityEpiSim#initialize(RunContext)} on a {@link HeapScheduler} and
+ * writes the same output files as a Repast run.
+ * </p>
+ * <p>
+ * {@code -n} repeats every run; replications of a run with a
+ * {@code randomSeed} use seeds derived from it by
+ * {@link RandomStreams#replicationSeed}, so they differ. When there is more
+ * than one run, the runs are executed in parallel by a {@link SweepExecutor}
+ * ({@code -t} sets how many at a time, by default one per processor), each
+ * writing its outputs to its own {@code run_<i>} directory, and one summary row per run is streamed to the
+ * results table named by {@code -o}. Runs that differ only after the burn-in
+ * period are forked from one shared burn-in unless {@code -F} is given.
+ * </p>
+ * <p>
+ * {@code -r} replaces the fixed replication count with sequential control by
+ * a {@link SequentialSweepExecutor}: each distinct point is replicated until
+ * the confidence intervals of its summary outputs are within the given
+ * fraction of their means, up to {@code -n} (by default 50) replications.
+ * Burn-ins are shared and cached as for a fixed count, and {@code -F} and
+ * {@code -c} apply the same way.
+ * </p>
+ * <p>
+ * {@code -c} keeps the burn-ins of seeded runs in a {@link BurnInCache}
+ * directory between invocations, within a budget of {@code -m} megabytes.
+ * </p>
+ *
+ * <pre>
+ * java -cp bin:lib/* builders.HeadlessRunner [-p parameters.xml] [-b batch_params.xml]
+ *     [-n replications] [-r relative_half_width] [-t threads]
+ *     [-o sweep_results.csv] [-F] [-c cache_directory] [-m megabytes] [name=value ...]
+ * </pre>
+ */
+public final class HeadlessRunner {
+
+	static final String DEFAULT_PARAMETERS = "FacilityEpiSim.rs/parameters.xml";
+	static final String DEFAULT_RESULTS = "sweep_results.csv";
+	static final long DEFAULT_CACHE_MEGABYTES = 1024;
+	static final int DEFAULT_MAX_REPLICATIONS = 50;
+
+	private HeadlessRunner() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		File parametersFile = new File(DEFAULT_PARAMETERS);
+		File batchFile = null;
+		int replications = 1;
+		boolean replicationsGiven = false;
+		double relativeHalfWidth = 0.0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		File resultsFile = new File(DEFAULT_RESULTS);
+		boolean shareBurnIn = true;
+		File cacheDirectory = null;
+		long cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+		Map<String, String> overrides = new LinkedHashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-p") && i + 1 < args.length) {
+				parametersFile = new File(args[++i]);
+			} else if (arg.equals("-b") && i + 1 < args.length) {
+				batchFile = new File(args[++i]);
+			} else if (arg.equals("-n") && i + 1 < args.length) {
+				replications = Integer.parseInt(args[++i]);
+				replicationsGiven = true;
+			} else if (arg.equals("-r") && i + 1 < args.length) {
+				relativeHalfWidth = Double.parseDouble(args[++i]);
+			} else if (arg.equals("-t") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (arg.equals("-o") && i + 1 < args.length) {
+				resultsFile = new File(args[++i]);
+			} else if (arg.equals("-c") && i + 1 < args.length) {
+				cacheDirectory = new File(args[++i]);
+			} else if (arg.equals("-m") && i + 1 < args.length) {
+				cacheMegabytes = Long.parseLong(args[++i]);
+			} else if (arg.equals("-F")) {
+				shareBurnIn = false;
+			} else if (arg.indexOf('=') > 0) {
+				overrides.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			} else {
+				System.err.println("Usage: HeadlessRunner [-p parameters.xml] [-b batch_params.xml]"
+						+ " [-n replications] [-r relative_half_width] [-t threads] [-o sweep_results.csv] [-F]"
+						+ " [-c cache_directory] [-m megabytes] [name=value ...]");
+				System.exit(2);
+			}
+		}
+
+		Map<String, String> defaults = ParameterFiles.readDefaults(parametersFile);
+		List<Map<String, String>> sweep = batchFile == null
+				? Collections.singletonList(Collections.<String, String>emptyMap())
+				: ParameterFiles.readSweep(batchFile);
+
+		BurnInCache cache = cacheDirectory == null ? null
+				: new BurnInCache(cacheDirectory, cacheMegabytes * 1024 * 1024);
+		if (relativeHalfWidth > 0) {
+			// Replications are decided per point, so each distinct point is listed once.
+			Map<Map<String, Object>, ModelParameters> points = new LinkedHashMap<>();
+			for (Map<String, String> point : sweep) {
+				Map<String, String> values = new LinkedHashMap<>(defaults);
+				values.putAll(point);
+				values.putAll(overrides);
+				ModelParameters params = ModelParameters.fromMap(values);
+				points.putIfAbsent(params.toMap(), params);
+			}
+			SequentialSweepExecutor executor = new SequentialSweepExecutor(new ArrayList<>(points.values()),
+					resultsFile, relativeHalfWidth, replicationsGiven ? replications : DEFAULT_MAX_REPLICATIONS);
+			executor.setShareBurnIn(shareBurnIn);
+			executor.setBurnInCache(cache);
+			int failed = executor.execute(threads);
+			if (failed > 0) {
+				System.err.println(failed + " of " + (executor.getCompleted() + failed) + " runs failed");
+				System.exit(1);
+			}
+			return;
+		}
+
+		List<ModelParameters> runs = new ArrayList<>(sweep.size() * replications);
+		for (int r = 0; r < replications; r++) {
+			for (Map<String, String> point : sweep) {
+				Map<String, String> values = new LinkedHashMap<>(defaults);
+				values.putAll(point);
+				values.putAll(overrides);
+				ModelParameters params = ModelParameters.fromMap(values);
+				if (r > 0 && params.hasRandomSeed()) {
+					params = params.with(Collections.singletonMap("randomSeed", RandomStreams.replicationSeed(params.getRandomSeed(), r + 1)));
+				}
+				runs.add(params);
+			}
+		}
+
+		if (runs.size() == 1) {
+			ModelParameters params = runs.get(0);
+			if (cache != null && params.hasRandomSeed()) {
+				run(cache.burnIn(params), params, new File("."));
+			} else {
+				run(params, new File("."));
+			}
+			return;
+		}
+		SweepExecutor executor = new SweepExecutor(runs, resultsFile);
+		executor.setShareBurnIn(shareBurnIn);
+		executor.setBurnInCache(cache);
+		int failed = executor.execute(threads);
+		if (failed > 0) {
+			System.err.println(failed + " of " + runs.size() + " runs failed");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Executes one run to completion.
+	 *
+	 * @param params          the resolved parameters of the run
+	 * @param outputDirectory directory the run's output files are written to
+	 * @return the finished model, for reading its results
+	 */
+	public static FacilityEpiSim run(ModelParameters params, File outputDirectory) {
+		HeapScheduler scheduler = new HeapScheduler();
+		FacilityEpiSim model = new FacilityEpiSim();
+		model.initialize(new RunContext(scheduler, params, outputDirectory));
+		scheduler.run();
+		return model;
+	}
+
+	/**
+	 * Executes the post-burn-in period of one run forked from a burn-in snapshot.
+	 *
+	 * @param snapshot        the shared burn-in
+	 * @param params          the resolved parameters of the run
+	 * @param outputDirectory directory the run's output files are written to
+	 * @return the finished model, for reading its results
+	 */
+	public static FacilityEpiSim run(BurnInSnapshot snapshot, ModelParameters params, File outputDirectory) {
+		FacilityEpiSim model = snapshot.fork(params, outputDirectory);
+		((HeapScheduler) model.getSchedule()).run();
+		return model;
+	}
+}
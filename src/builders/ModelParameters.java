@@ -0,0 +1,416 @@
+package builders;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, validated snapshot of the model parameters for one run.
+ * <p>
+ * The builder resolves every parameter once, from the Repast run parameters
+ * or from a plain name/value map, into primitive fields.
+ * The snapshot is then handed to {@link disease.Disease},
+ * {@link agentcontainers.Facility} and {@link agentcontainers.Region}, so
+ * per-event code reads plain fields instead of doing string-keyed lookups.
+ * </p>
+ * <p>
+ * Parameter names match those in {@code FacilityEpiSim.rs/parameters.xml}.
+ * The class has no Repast dependency, so runs holding it can be serialized
+ * and restored without the Repast runtime.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public final class ModelParameters implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Parameters that are first read at the end of the burn-in period. Runs
+	 * that differ only in these share the same burn-in, so they can be forked
+	 * from one {@link BurnInSnapshot}.
+	 */
+	public static final Set<String> POST_BURN_IN_PARAMETERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"doActiveSurveillanceAfterBurnIn", "daysBetweenTests", "admissionSurveillanceAdherence",
+			"midstaySurveillanceAdherence", "probSurveillanceDetection", "isActiveSurveillanceAgent",
+			"simulationDurationAfterBurnIn", "isBatchRun")));
+
+	private final String diseaseName;
+	private final double beta;
+	private final double meanDetectionTime;
+	private final double avgDecolonizationTime;
+	private final double importationRate;
+	private final boolean activeSurveillanceAgent;
+	private final double daysBetweenTests;
+	private final double admissionSurveillanceAdherence;
+	private final double midstaySurveillanceAdherence;
+	private final double probSurveillanceDetection;
+	private final boolean isolatePatientWhenDetected;
+	private final double isolationEffectiveness;
+	private final double prob1;
+	private final double shape1;
+	private final double scale1;
+	private final double shape2;
+	private final double scale2;
+	private final int burnInPeriod;
+	private final int simulationDuration;
+	private final boolean adaptiveBurnIn;
+	private final int minBurnInPeriod;
+	private final boolean allowImportationsDuringBurnIn;
+	private final boolean doActiveSurveillanceAfterBurnIn;
+	private final boolean batchRun;
+	private final int extraIteration;
+	private final boolean hasRandomSeed;
+	private final long randomSeed;
+	private final boolean useTauLeaping;
+	private final double tauLeapEpsilon;
+	private final boolean commonRandomNumbers;
+	private final boolean displayPatients;
+	private final boolean auditCounters;
+
+	private final Map<String, Object> values;
+
+	private ModelParameters(Map<String, ?> source) {
+		Map<String, Object> resolved = new LinkedHashMap<>();
+		diseaseName = string(source, resolved, "diseaseName", "CRE");
+		beta = nonNegative(source, resolved, "beta");
+		meanDetectionTime = positive(source, resolved, "meanDetectionTime");
+		avgDecolonizationTime = positive(source, resolved, "avgDecolonizationTime");
+		importationRate = probability(source, resolved, "importationRate");
+		activeSurveillanceAgent = bool(source, resolved, "isActiveSurveillanceAgent", true);
+		daysBetweenTests = positive(source, resolved, "daysBetweenTests");
+		admissionSurveillanceAdherence = probability(source, resolved, "admissionSurveillanceAdherence");
+		midstaySurveillanceAdherence = probability(source, resolved, "midstaySurveillanceAdherence");
+		probSurveillanceDetection = probability(source, resolved, "probSurveillanceDetection");
+		isolatePatientWhenDetected = bool(source, resolved, "isolatePatientWhenDetected", true);
+		isolationEffectiveness = probability(source, resolved, "isolationEffectiveness");
+		prob1 = probability(source, resolved, "prob1");
+		shape1 = positive(source, resolved, "shape1");
+		scale1 = positive(source, resolved, "scale1");
+		shape2 = positive(source, resolved, "shape2");
+		scale2 = positive(source, resolved, "scale2");
+		burnInPeriod = (int) integer(source, resolved, "burnInPeriod", 3650);
+		simulationDuration = (int) integer(source, resolved, "simulationDurationAfterBurnIn", 5475);
+		adaptiveBurnIn = bool(source, resolved, "adaptiveBurnIn", false);
+		minBurnInPeriod = (int) integer(source, resolved, "minBurnInPeriod", 365);
+		allowImportationsDuringBurnIn = bool(source, resolved, "allowImportationsDuringBurnIn", false);
+		doActiveSurveillanceAfterBurnIn = bool(source, resolved, "doActiveSurveillanceAfterBurnIn", true);
+		batchRun = bool(source, resolved, "isBatchRun", false);
+		extraIteration = (int) integer(source, resolved, "extraIteration", 0);
+		Object seed = source.get("randomSeed");
+		hasRandomSeed = seed != null && !"__NULL__".equals(seed) && !"".equals(seed.toString().trim());
+		randomSeed = hasRandomSeed ? integer(source, resolved, "randomSeed", 0) : 0L;
+		useTauLeaping = bool(source, resolved, "useTauLeaping", false);
+		tauLeapEpsilon = doubleValue(source, resolved, "tauLeapEpsilon", 0.03);
+		commonRandomNumbers = bool(source, resolved, "commonRandomNumbers", false);
+		displayPatients = bool(source, resolved, "displayPatients", false);
+		auditCounters = bool(source, resolved, "auditCounters", false);
+		if (tauLeapEpsilon <= 0 || tauLeapEpsilon >= 1) {
+			throw new IllegalArgumentException("tauLeapEpsilon " + tauLeapEpsilon + " out of bounds (0,1)");
+		}
+		if (minBurnInPeriod < 0 || minBurnInPeriod > burnInPeriod) {
+			throw new IllegalArgumentException("minBurnInPeriod " + minBurnInPeriod + " out of bounds [0,"
+					+ burnInPeriod + "]");
+		}
+		if (simulationDuration < burnInPeriod) {
+			throw new IllegalArgumentException("simulationDurationAfterBurnIn " + simulationDuration
+					+ " is shorter than burnInPeriod " + burnInPeriod);
+		}
+		values = Collections.unmodifiableMap(resolved);
+	}
+
+	/**
+	 * Resolves parameters from a name/value map. Values may be typed
+	 * ({@link Number}, {@link Boolean}) or strings as read from a parameter file.
+	 *
+	 * @param source parameter values keyed by parameter name
+	 * @return the validated snapshot
+	 * @throws IllegalArgumentException if a required parameter is missing or invalid
+	 */
+	public static ModelParameters fromMap(Map<String, ?> source) {
+		return new ModelParameters(source);
+	}
+
+	/**
+	 * Returns a copy of this snapshot with some parameters replaced.
+	 *
+	 * @param overrides parameter values to replace, keyed by parameter name
+	 * @return the validated snapshot
+	 */
+	public ModelParameters with(Map<String, ?> overrides) {
+		Map<String, Object> source = new LinkedHashMap<>(values);
+		source.putAll(overrides);
+		return new ModelParameters(source);
+	}
+
+	/**
+	 * @return the resolved parameter values keyed by parameter name, in a stable order
+	 */
+	public Map<String, Object> toMap() {
+		return values;
+	}
+
+	/**
+	 * @return the values of every parameter that affects the burn-in period,
+	 *         keyed by parameter name, in a stable order
+	 */
+	public Map<String, Object> burnInValues() {
+		Map<String, Object> burnIn = new LinkedHashMap<>(values);
+		burnIn.keySet().removeAll(POST_BURN_IN_PARAMETERS);
+		return burnIn;
+	}
+
+	/**
+	 * @param other another parameter snapshot
+	 * @return true if both snapshots produce the same burn-in period
+	 */
+	public boolean hasSameBurnIn(ModelParameters other) {
+		return burnInValues().equals(other.burnInValues());
+	}
+
+	private static Object required(Map<String, ?> source, String name) {
+		Object value = source.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing model parameter " + name);
+		}
+		return value;
+	}
+
+	private static double toDouble(String name, Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		try {
+			return Double.parseDouble(value.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " value " + value + " is not a number");
+		}
+	}
+
+	private static double doubleValue(Map<String, ?> source, Map<String, Object> resolved, String name,
+			double defaultValue) {
+		Object value = source.get(name);
+		double d = value == null ? defaultValue : toDouble(name, value);
+		resolved.put(name, d);
+		return d;
+	}
+
+	private static double nonNegative(Map<String, ?> source, Map<String, Object> resolved, String name) {
+		double d = toDouble(name, required(source, name));
+		if (d < 0 || Double.isNaN(d)) {
+			throw new IllegalArgumentException("Parameter " + name + " value " + d + " must be non-negative");
+		}
+		resolved.put(name, d);
+		return d;
+	}
+
+	private static double positive(Map<String, ?> source, Map<String, Object> resolved, String name) {
+		double d = nonNegative(source, resolved, name);
+		if (d == 0) {
+			throw new IllegalArgumentException("Parameter " + name + " must be positive");
+		}
+		return d;
+	}
+
+	private static double probability(Map<String, ?> source, Map<String, Object> resolved, String name) {
+		double d = nonNegative(source, resolved, name);
+		if (d > 1) {
+			throw new IllegalArgumentException("Parameter " + name + " value " + d + " out of bounds [0,1]");
+		}
+		return d;
+	}
+
+	private static long integer(Map<String, ?> source, Map<String, Object> resolved, String name,
+			long defaultValue) {
+		Object value = source.get(name);
+		long l;
+		if (value == null) {
+			l = defaultValue;
+		} else if (value instanceof Number) {
+			l = ((Number) value).longValue();
+		} else {
+			try {
+				l = Long.parseLong(value.toString().trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Parameter " + name + " value " + value + " is not an integer");
+			}
+		}
+		resolved.put(name, l);
+		return l;
+	}
+
+	private static boolean bool(Map<String, ?> source, Map<String, Object> resolved, String name,
+			boolean defaultValue) {
+		Object value = source.get(name);
+		boolean b;
+		if (value == null) {
+			b = defaultValue;
+		} else if (value instanceof Boolean) {
+			b = (Boolean) value;
+		} else {
+			String s = value.toString().trim();
+			if (!s.equalsIgnoreCase("true") && !s.equalsIgnoreCase("false")) {
+				throw new IllegalArgumentException("Parameter " + name + " value " + value + " is not a boolean");
+			}
+			b = Boolean.parseBoolean(s);
+		}
+		resolved.put(name, b);
+		return b;
+	}
+
+	private static String string(Map<String, ?> source, Map<String, Object> resolved, String name,
+			String defaultValue) {
+		Object value = source.get(name);
+		String s = value == null ? defaultValue : value.toString();
+		resolved.put(name, s);
+		return s;
+	}
+
+	public String getDiseaseName() {
+		return diseaseName;
+	}
+
+	public double getBeta() {
+		return beta;
+	}
+
+	public double getMeanDetectionTime() {
+		return meanDetectionTime;
+	}
+
+	public double getAvgDecolonizationTime() {
+		return avgDecolonizationTime;
+	}
+
+	public double getImportationRate() {
+		return importationRate;
+	}
+
+	public boolean isActiveSurveillanceAgent() {
+		return activeSurveillanceAgent;
+	}
+
+	public double getDaysBetweenTests() {
+		return daysBetweenTests;
+	}
+
+	public double getAdmissionSurveillanceAdherence() {
+		return admissionSurveillanceAdherence;
+	}
+
+	public double getMidstaySurveillanceAdherence() {
+		return midstaySurveillanceAdherence;
+	}
+
+	public double getProbSurveillanceDetection() {
+		return probSurveillanceDetection;
+	}
+
+	public boolean isolatePatientWhenDetected() {
+		return isolatePatientWhenDetected;
+	}
+
+	public double getIsolationEffectiveness() {
+		return isolationEffectiveness;
+	}
+
+	public double getProb1() {
+		return prob1;
+	}
+
+	public double getShape1() {
+		return shape1;
+	}
+
+	public double getScale1() {
+		return scale1;
+	}
+
+	public double getShape2() {
+		return shape2;
+	}
+
+	public double getScale2() {
+		return scale2;
+	}
+
+	public int getBurnInPeriod() {
+		return burnInPeriod;
+	}
+
+	public int getSimulationDuration() {
+		return simulationDuration;
+	}
+
+	/**
+	 * @return true if the burn-in ends as soon as the daily series reach
+	 *         steady state, with {@link #getBurnInPeriod()} as the ceiling
+	 */
+	public boolean adaptiveBurnIn() {
+		return adaptiveBurnIn;
+	}
+
+	public int getMinBurnInPeriod() {
+		return minBurnInPeriod;
+	}
+
+	public boolean allowImportationsDuringBurnIn() {
+		return allowImportationsDuringBurnIn;
+	}
+
+	public boolean doActiveSurveillanceAfterBurnIn() {
+		return doActiveSurveillanceAfterBurnIn;
+	}
+
+	public boolean isBatchRun() {
+		return batchRun;
+	}
+
+	public int getExtraIteration() {
+		return extraIteration;
+	}
+
+	public boolean hasRandomSeed() {
+		return hasRandomSeed;
+	}
+
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	public boolean useTauLeaping() {
+		return useTauLeaping;
+	}
+
+	public double getTauLeapEpsilon() {
+		return tauLeapEpsilon;
+	}
+
+	/**
+	 * @return true if each patient draws from its own streams, keyed by
+	 *         arrival index, so runs with the same seed see the same patients
+	 */
+	public boolean commonRandomNumbers() {
+		return commonRandomNumbers;
+	}
+
+	/**
+	 * @return true if patients are added to the Repast context for GUI
+	 *         displays; headless runs ignore it
+	 */
+	public boolean displayPatients() {
+		return displayPatients;
+	}
+
+	/**
+	 * @return true if the daily statistics cross-check the patient stores'
+	 *         running counts against a full scan every day
+	 */
+	public boolean auditCounters() {
+		return auditCounters;
+	}
+}
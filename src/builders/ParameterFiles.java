@@ -0,0 +1,143 @@
+package builders;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads the Repast parameter files without the Repast runtime.
+ * <p>
+ * {@link #readDefaults(File)} reads the default values from
+ * {@code parameters.xml}; {@link #readSweep(File)} expands a
+ * {@code batch_params.xml} sweep into one set of overrides per run. Values are
+ * returned as strings and resolved by {@link ModelParameters#fromMap(Map)}.
+ * </p>
+ */
+public final class ParameterFiles {
+
+	private ParameterFiles() {
+	}
+
+	/**
+	 * Reads the default value of every parameter in a Repast
+	 * {@code parameters.xml} file.
+	 *
+	 * @param file the parameters file
+	 * @return default values keyed by parameter name, in file order
+	 * @throws IOException if the file cannot be read or parsed
+	 */
+	public static Map<String, String> readDefaults(File file) throws IOException {
+		Map<String, String> defaults = new LinkedHashMap<>();
+		for (Element e : children(parse(file).getDocumentElement(), "parameter")) {
+			defaults.put(e.getAttribute("name"), e.getAttribute("defaultValue"));
+		}
+		return defaults;
+	}
+
+	/**
+	 * Expands a Repast {@code batch_params.xml} sweep. A nested parameter is
+	 * swept once for every value of its parent, and the whole sweep is repeated
+	 * {@code runs} times.
+	 *
+	 * @param file the batch parameters file
+	 * @return one map of parameter values per run, in sweep order
+	 * @throws IOException if the file cannot be read or parsed
+	 */
+	public static List<Map<String, String>> readSweep(File file) throws IOException {
+		Element sweep = parse(file).getDocumentElement();
+		List<Map<String, String>> points = new ArrayList<>();
+		expand(children(sweep, "parameter"), 0, new LinkedHashMap<>(), points);
+		String runsAttr = sweep.getAttribute("runs");
+		int runs = runsAttr.isEmpty() ? 1 : Integer.parseInt(runsAttr.trim());
+		List<Map<String, String>> result = new ArrayList<>(points.size() * runs);
+		for (int r = 0; r < runs; r++) {
+			result.addAll(points);
+		}
+		return result;
+	}
+
+	private static void expand(List<Element> level, int index, Map<String, String> current,
+			List<Map<String, String>> out) {
+		if (index == level.size()) {
+			out.add(new LinkedHashMap<>(current));
+			return;
+		}
+		Element parameter = level.get(index);
+		String name = parameter.getAttribute("name");
+		// A parameter's children are swept inside it, then its later siblings.
+		List<Element> rest = new ArrayList<>(children(parameter, "parameter"));
+		rest.addAll(level.subList(index + 1, level.size()));
+		for (String value : values(parameter)) {
+			current.put(name, value);
+			expand(rest, 0, current, out);
+		}
+		current.remove(name);
+	}
+
+	private static List<String> values(Element parameter) {
+		String name = parameter.getAttribute("name");
+		String type = parameter.getAttribute("type");
+		List<String> values = new ArrayList<>();
+		switch (type) {
+		case "constant":
+			values.add(parameter.getAttribute("value"));
+			break;
+		case "list":
+			for (String v : parameter.getAttribute("values").trim().split("[,\\s]+")) {
+				if (!v.isEmpty()) {
+					values.add(v);
+				}
+			}
+			break;
+		case "number":
+			BigDecimal start = new BigDecimal(parameter.getAttribute("start").trim());
+			BigDecimal end = new BigDecimal(parameter.getAttribute("end").trim());
+			BigDecimal step = new BigDecimal(parameter.getAttribute("step").trim());
+			if (step.signum() <= 0) {
+				throw new IllegalArgumentException("Sweep parameter " + name + " step must be positive");
+			}
+			boolean integral = "int".equals(parameter.getAttribute("number_type"))
+					|| "long".equals(parameter.getAttribute("number_type"));
+			for (BigDecimal v = start; v.compareTo(end) <= 0; v = v.add(step)) {
+				values.add(integral ? v.toBigInteger().toString() : v.toPlainString());
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Sweep parameter " + name + " has unsupported type " + type);
+		}
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("Sweep parameter " + name + " has no values");
+		}
+		return values;
+	}
+
+	private static Document parse(File file) throws IOException {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException("Cannot parse " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static List<Element> children(Element parent, String tag) {
+		List<Element> elements = new ArrayList<>();
+		for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+			if (n instanceof Element && tag.equals(n.getNodeName())) {
+				elements.add((Element) n);
+			}
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,197 @@
+package builders;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+
+import engine.EventScheduler;
+import utils.RandomStreams;
+
+/**
+ * State that belongs to one simulation run: its scheduler, parameters, output
+ * directory, random streams, shared event logs, detection counters and agent
+ * id sequence.
+ * <p>
+ * One context is created per run and handed down from {@link FacilityEpiSim}
+ * through the facility, region, patients and their diseases. Nothing here is
+ * static, so independent runs can execute on different threads of one JVM as
+ * long as each writes to its own output directory.
+ * </p>
+ */
+public class RunContext implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final EventScheduler scheduler;
+	private ModelParameters params;
+	private boolean batchRun;
+	private File outputDirectory;
+	private final RandomStreams randomStreams;
+
+	private int nextAgentId = 0;
+	private int clinicalDetections = 0;
+	private int surveillanceDetections = 0;
+
+	private transient PrintWriter decolonizationWriter;
+	private transient PrintWriter clinicalWriter;
+	private transient PrintWriter verificationWriter;
+	private transient PrintWriter surveillanceWriter;
+
+	/**
+	 * The run's random streams are seeded from {@code randomSeed}, or from a
+	 * fresh seed if the parameters have none.
+	 *
+	 * @param scheduler       the event scheduler driving the run
+	 * @param params          the resolved parameters of the run
+	 * @param outputDirectory directory the run's output files are written to
+	 */
+	public RunContext(EventScheduler scheduler, ModelParameters params, File outputDirectory) {
+		this.scheduler = scheduler;
+		this.params = params;
+		this.batchRun = params.isBatchRun();
+		this.outputDirectory = outputDirectory;
+		this.randomStreams = new RandomStreams(
+				params.hasRandomSeed() ? params.getRandomSeed() : RandomStreams.newRootSeed());
+	}
+
+	/**
+	 * Switches a run restored from a {@link BurnInSnapshot} to the parameters
+	 * and output directory of the arm it is forked into, and opens the arm's
+	 * event logs. The scheduler, random streams, counters and agent id sequence
+	 * carry on from the snapshot.
+	 *
+	 * @param params          the resolved parameters of the arm
+	 * @param outputDirectory directory the arm's output files are written to
+	 */
+	void resume(ModelParameters params, File outputDirectory) {
+		this.params = params;
+		this.batchRun = params.isBatchRun();
+		this.outputDirectory = outputDirectory;
+		openEventLogs();
+	}
+
+	/**
+	 * Opens an output file of this run for writing.
+	 *
+	 * @param fileName the file name, relative to the run's output directory
+	 * @return the writer
+	 * @throws FileNotFoundException if the file cannot be created
+	 */
+	public PrintWriter openWriter(String fileName) throws FileNotFoundException {
+		return new PrintWriter(outputFile(fileName));
+	}
+
+	/**
+	 * Resolves an output file of this run, creating the output directory if needed.
+	 *
+	 * @param fileName the file name, relative to the run's output directory
+	 * @return the file
+	 * @throws FileNotFoundException if the output directory cannot be created
+	 */
+	public File outputFile(String fileName) throws FileNotFoundException {
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new FileNotFoundException("Cannot create output directory " + outputDirectory);
+		}
+		return new File(outputDirectory, fileName);
+	}
+
+	/**
+	 * Opens the per-event detection, decolonization and surveillance logs,
+	 * unless this is a batch run.
+	 */
+	public void openEventLogs() {
+		if (batchRun) {
+			return;
+		}
+		try {
+			decolonizationWriter = openWriter("decolonization.txt");
+			decolonizationWriter.println("time,decolonized_patient_id");
+			clinicalWriter = openWriter("clinicalDetection.txt");
+			clinicalWriter.println("Time,DetectedPatientID,DetectionCount");
+			verificationWriter = openWriter("detection_verification.txt");
+			verificationWriter.println("time,patient_id,source,colonized,detection_count");
+			surveillanceWriter = openWriter("surveillance.txt");
+			surveillanceWriter.printf("Time, Patient, Colonized, Detected%n");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Flushes and closes the event logs opened by {@link #openEventLogs()}.
+	 */
+	public void closeEventLogs() {
+		decolonizationWriter = close(decolonizationWriter);
+		clinicalWriter = close(clinicalWriter);
+		verificationWriter = close(verificationWriter);
+		surveillanceWriter = close(surveillanceWriter);
+	}
+
+	private static PrintWriter close(PrintWriter writer) {
+		if (writer != null) {
+			writer.flush();
+			writer.close();
+		}
+		return null;
+	}
+
+	/**
+	 * @return the next agent id of this run
+	 */
+	public int nextAgentId() {
+		return nextAgentId++;
+	}
+
+	public void incrementClinicalDetections() {
+		clinicalDetections++;
+	}
+
+	public void incrementSurveillanceDetections() {
+		surveillanceDetections++;
+	}
+
+	public int getClinicalDetections() {
+		return clinicalDetections;
+	}
+
+	public int getSurveillanceDetections() {
+		return surveillanceDetections;
+	}
+
+	public EventScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public RandomStreams getRandomStreams() {
+		return randomStreams;
+	}
+
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	public boolean isBatchRun() {
+		return batchRun;
+	}
+
+	public File getOutputDirectory() {
+		return outputDirectory;
+	}
+
+	public PrintWriter getDecolonizationWriter() {
+		return decolonizationWriter;
+	}
+
+	public PrintWriter getClinicalWriter() {
+		return clinicalWriter;
+	}
+
+	public PrintWriter getVerificationWriter() {
+		return verificationWriter;
+	}
+
+	public PrintWriter getSurveillanceWriter() {
+		return surveillanceWriter;
+	}
+}
@@ -0,0 +1,487 @@
+package builders;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import utils.RandomStreams;
+import utils.RunningStats;
+
+/**
+ * Runs the points of a parameter sweep with as many replications as each
+ * point needs, instead of a fixed number.
+ * <p>
+ * Every point first gets {@code minReplications} runs. After that, a point
+ * stops once the Student-t confidence interval of each of its summary
+ * outputs (clinical detections, mean daily prevalence, mean discharge
+ * prevalence and transmissions) has a half-width within
+ * {@code relativeHalfWidth} of the mean, or once it reaches
+ * {@code maxReplications}. A worker that becomes free always takes a
+ * replication of the point whose interval is currently widest relative to the
+ * target, so replications go to the noisy points rather than to the quiet
+ * ones.
+ * </p>
+ * <p>
+ * Each replication is a complete run, written like a run of
+ * {@link SweepExecutor}: its output files go to {@code run_<n>} and its
+ * summary row to the results table, with {@code n} numbering replications in
+ * the order they start. A replication of a point with a {@code randomSeed}
+ * uses a seed derived from it by {@link RandomStreams#replicationSeed}. When the sweep finishes, the mean
+ * and interval half-width of every output of every point are written to a
+ * second table, named after the results table with a {@code _points} suffix.
+ * </p>
+ * <p>
+ * As in {@link SweepExecutor}, points that differ only in their
+ * {@link ModelParameters#POST_BURN_IN_PARAMETERS post-burn-in parameters}
+ * share burn-ins: the k-th replications of such points fork from one
+ * {@link BurnInSnapshot}, which is dropped once every point of the group has
+ * started its k-th replication or stopped. With a {@link BurnInCache}, the
+ * burn-ins of seeded replications are also loaded from and saved to disk.
+ * </p>
+ */
+public class SequentialSweepExecutor {
+
+	public static final int DEFAULT_MIN_REPLICATIONS = 3;
+	public static final double DEFAULT_CONFIDENCE = 0.95;
+
+	static final String[] OUTPUTS = { "clinical_detections", "mean_daily_prevalence", "mean_discharge_prevalence",
+			"number_of_transmissions" };
+
+	private final List<ModelParameters> points;
+	private final File resultsFile;
+	private final double relativeHalfWidth;
+	private final int maxReplications;
+	private final List<String> parameterNames;
+	private final Point[] state;
+	private int minReplications = DEFAULT_MIN_REPLICATIONS;
+	private double confidence = DEFAULT_CONFIDENCE;
+	private boolean shareBurnIn = true;
+	private BurnInCache burnInCache;
+	// Index of each point's burn-in group, and the number of points in each group
+	private int[] burnInGroup;
+	private int[] burnInGroupSize;
+	// Burn-ins still to be forked, keyed by burn-in group and replication
+	private final Map<List<Integer>, SharedBurnIn> burnIns = new HashMap<>();
+	private PrintWriter results;
+	private int started = 0;
+	private int running = 0;
+	private int completed = 0;
+	private int failed = 0;
+
+	/**
+	 * @param points            the resolved parameters of each distinct sweep point
+	 * @param resultsFile       the results table to write
+	 * @param relativeHalfWidth the target confidence interval half-width, as a
+	 *                          fraction of the mean
+	 * @param maxReplications   the most replications to run for any point
+	 */
+	public SequentialSweepExecutor(List<ModelParameters> points, File resultsFile, double relativeHalfWidth,
+			int maxReplications) {
+		if (points.isEmpty()) {
+			throw new IllegalArgumentException("Sweep has no points");
+		}
+		if (relativeHalfWidth <= 0) {
+			throw new IllegalArgumentException("relativeHalfWidth " + relativeHalfWidth + " must be positive");
+		}
+		this.points = points;
+		this.resultsFile = resultsFile;
+		this.relativeHalfWidth = relativeHalfWidth;
+		this.maxReplications = maxReplications;
+		this.parameterNames = new ArrayList<>(points.get(0).toMap().keySet());
+		this.state = new Point[points.size()];
+		for (int i = 0; i < state.length; i++) {
+			state[i] = new Point(points.get(i));
+		}
+	}
+
+	/**
+	 * Runs replications until every point has converged or reached the
+	 * maximum, and writes the results and points tables.
+	 *
+	 * @param parallelism the number of runs to execute at a time
+	 * @return the number of runs that failed
+	 * @throws IOException if a table cannot be written
+	 */
+	public int execute(int parallelism) throws IOException {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism " + parallelism + " must be at least 1");
+		}
+		if (minReplications < 2 || minReplications > maxReplications) {
+			throw new IllegalArgumentException("minReplications " + minReplications + " out of bounds [2,"
+					+ maxReplications + "]");
+		}
+		groupByBurnIn();
+		File directory = resultsFile.getAbsoluteFile().getParentFile();
+		try (PrintWriter writer = new PrintWriter(resultsFile)) {
+			results = writer;
+			results.println("run," + String.join(",", parameterNames) + "," + FacilityEpiSim.SUMMARY_HEADER);
+			results.flush();
+			ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+			try {
+				for (int w = 0; w < parallelism; w++) {
+					pool.execute(() -> work(directory));
+				}
+				pool.shutdown();
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while running the sweep", e);
+			}
+		} finally {
+			results = null;
+		}
+		writePoints(pointsFile());
+		return failed;
+	}
+
+	private void work(File directory) {
+		Replication next;
+		while ((next = next()) != null) {
+			try {
+				FacilityEpiSim model = run(next, new File(directory, "run_" + next.run));
+				record(next, model);
+			} catch (RuntimeException e) {
+				recordFailure(next, e);
+			}
+		}
+	}
+
+	private FacilityEpiSim run(Replication r, File outputDirectory) {
+		if (r.burnIn != null) {
+			return HeadlessRunner.run(r.burnIn.get(), r.params, outputDirectory);
+		}
+		if (burnInCache != null && r.params.hasRandomSeed()) {
+			return HeadlessRunner.run(burnInCache.burnIn(r.params), r.params, outputDirectory);
+		}
+		return HeadlessRunner.run(r.params, outputDirectory);
+	}
+
+	/**
+	 * Numbers the groups of points that can share burn-ins; with sharing off,
+	 * every point is a group of its own.
+	 */
+	private void groupByBurnIn() {
+		burnInGroup = new int[state.length];
+		Map<Map<String, Object>, Integer> groups = new HashMap<>();
+		for (int i = 0; i < state.length; i++) {
+			burnInGroup[i] = shareBurnIn ? groups.computeIfAbsent(points.get(i).burnInValues(), k -> groups.size())
+					: i;
+		}
+		burnInGroupSize = new int[state.length];
+		for (int g : burnInGroup) {
+			burnInGroupSize[g]++;
+		}
+	}
+
+	/**
+	 * Returns the shared burn-in of a replication of a point, or null if the
+	 * point shares its burn-ins with no other point.
+	 */
+	private SharedBurnIn sharedBurnIn(Point p, int replication) {
+		int group = burnInGroup[indexOf(p)];
+		if (burnInGroupSize[group] < 2) {
+			return null;
+		}
+		ModelParameters params = replicationParams(p.params, replication);
+		return burnIns.computeIfAbsent(Arrays.asList(group, replication), k -> new SharedBurnIn(params));
+	}
+
+	/**
+	 * Drops the shared burn-ins that no point of their group can still fork from.
+	 */
+	private void pruneBurnIns() {
+		for (Iterator<Map.Entry<List<Integer>, SharedBurnIn>> it = burnIns.entrySet().iterator(); it.hasNext();) {
+			List<Integer> key = it.next().getKey();
+			boolean used = false;
+			for (int i = 0; i < state.length && !used; i++) {
+				Point p = state[i];
+				used = burnInGroup[i] == key.get(0) && p.started < key.get(1) && !p.converged
+						&& p.started < maxReplications;
+			}
+			if (!used) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Chooses the next replication to run, waiting while the only candidates
+	 * are points whose running replications may still make them converge.
+	 *
+	 * @return the replication, or null once the sweep is finished
+	 */
+	private synchronized Replication next() {
+		while (true) {
+			Point best = null;
+			double bestScore = 0.0;
+			boolean waiting = false;
+			for (Point p : state) {
+				if (p.converged || p.started >= maxReplications) {
+					continue;
+				}
+				double score;
+				if (p.started < minReplications) {
+					// Points still in their initial replications come first,
+					// least started first.
+					score = Double.POSITIVE_INFINITY;
+					if (best != null && bestScore == score && best.started <= p.started) {
+						continue;
+					}
+				} else if (p.completed < minReplications) {
+					if (p.running > 0) {
+						waiting = true;
+						continue;
+					}
+					// Replace a failed initial replication.
+					score = Double.POSITIVE_INFINITY;
+				} else {
+					// Project the interval to the replications completed or
+					// still running; failed ones add nothing and are retried.
+					score = p.widestRelativeHalfWidth() / relativeHalfWidth
+							* Math.sqrt((double) p.completed / (p.completed + p.running));
+					if (score <= 1.0) {
+						waiting |= p.running > 0;
+						continue;
+					}
+				}
+				if (best == null || score > bestScore || score == Double.POSITIVE_INFINITY) {
+					best = p;
+					bestScore = score;
+				}
+			}
+			if (best != null) {
+				best.started++;
+				best.running++;
+				running++;
+				Replication r = new Replication(best, best.started, ++started, sharedBurnIn(best, best.started));
+				pruneBurnIns();
+				return r;
+			}
+			if (!waiting || running == 0) {
+				return null;
+			}
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	private synchronized void record(Replication r, FacilityEpiSim model) {
+		Point p = r.point;
+		p.completed++;
+		p.running--;
+		p.stats[0].add(model.getClinicalDetections());
+		p.stats[1].add(model.getMeanDailyPrevalence());
+		p.stats[2].add(model.getMeanDischargePrevalence());
+		p.stats[3].add(model.getNumberOfTransmissions());
+		p.converged = p.completed >= minReplications && p.widestRelativeHalfWidth() <= relativeHalfWidth;
+		if (p.converged) {
+			pruneBurnIns();
+		}
+		results.println(SweepExecutor.formatRow(r.run, parameterNames, r.params) + "," + model.getSummaryRow());
+		results.flush();
+		completed++;
+		running--;
+		System.out.println("Run " + r.run + " finished (replication " + r.replication + " of point "
+				+ (indexOf(p) + 1) + (p.converged ? ", converged" : "") + ")");
+		notifyAll();
+	}
+
+	private synchronized void recordFailure(Replication r, RuntimeException e) {
+		failed++;
+		running--;
+		r.point.running--;
+		System.err.println("Run " + r.run + " failed: " + e);
+		e.printStackTrace();
+		notifyAll();
+	}
+
+	private int indexOf(Point p) {
+		for (int i = 0; i < state.length; i++) {
+			if (state[i] == p) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private File pointsFile() {
+		String name = resultsFile.getName();
+		int dot = name.lastIndexOf('.');
+		String pointsName = dot > 0 ? name.substring(0, dot) + "_points" + name.substring(dot) : name + "_points";
+		return new File(resultsFile.getAbsoluteFile().getParentFile(), pointsName);
+	}
+
+	private void writePoints(File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			StringBuilder header = new StringBuilder("point,").append(String.join(",", parameterNames))
+					.append(",replications,converged");
+			for (String output : OUTPUTS) {
+				header.append(',').append(output).append(',').append(output).append("_half_width");
+			}
+			writer.println(header);
+			for (int i = 0; i < state.length; i++) {
+				Point p = state[i];
+				StringBuilder row = new StringBuilder(SweepExecutor.formatRow(i + 1, parameterNames, p.params));
+				row.append(',').append(p.completed).append(',').append(p.converged);
+				for (RunningStats s : p.stats) {
+					row.append(',').append(s.getMean()).append(',').append(s.getHalfWidth(confidence));
+				}
+				writer.println(row);
+			}
+		}
+	}
+
+	/**
+	 * Replication progress and output statistics of one sweep point.
+	 */
+	private final class Point {
+		final ModelParameters params;
+		final RunningStats[] stats = new RunningStats[OUTPUTS.length];
+		int started = 0;
+		int running = 0;
+		int completed = 0;
+		boolean converged = false;
+
+		Point(ModelParameters params) {
+			this.params = params;
+			for (int i = 0; i < stats.length; i++) {
+				stats[i] = new RunningStats();
+			}
+		}
+
+		double widestRelativeHalfWidth() {
+			double widest = 0.0;
+			for (RunningStats s : stats) {
+				double w = s.getRelativeHalfWidth(confidence);
+				if (Double.isNaN(w)) {
+					return Double.POSITIVE_INFINITY;
+				}
+				widest = Math.max(widest, w);
+			}
+			return widest;
+		}
+	}
+
+	/**
+	 * @return the parameters of a replication of a point: a seeded point's
+	 *         replications use {@link RandomStreams#replicationSeed} of its seed
+	 */
+	private static ModelParameters replicationParams(ModelParameters params, int replication) {
+		return params.hasRandomSeed()
+				? params.with(Collections.singletonMap("randomSeed",
+						RandomStreams.replicationSeed(params.getRandomSeed(), replication)))
+				: params;
+	}
+
+	/**
+	 * One replication handed to a worker.
+	 */
+	private static final class Replication {
+		final Point point;
+		final int replication;
+		final int run;
+		final ModelParameters params;
+		final SharedBurnIn burnIn;
+
+		Replication(Point point, int replication, int run, SharedBurnIn burnIn) {
+			this.point = point;
+			this.replication = replication;
+			this.run = run;
+			this.params = replicationParams(point.params, replication);
+			this.burnIn = burnIn;
+		}
+	}
+
+	/**
+	 * A burn-in simulated by the first replication that needs it and forked
+	 * by the others.
+	 */
+	private final class SharedBurnIn {
+		private final ModelParameters params;
+		private BurnInSnapshot snapshot;
+
+		SharedBurnIn(ModelParameters params) {
+			this.params = params;
+		}
+
+		synchronized BurnInSnapshot get() {
+			if (snapshot == null) {
+				snapshot = burnInCache != null && params.hasRandomSeed() ? burnInCache.burnIn(params)
+						: BurnInSnapshot.burnIn(params);
+			}
+			return snapshot;
+		}
+	}
+
+	public int getMinReplications() {
+		return minReplications;
+	}
+
+	/**
+	 * @param minReplications the replications every point gets before its
+	 *                        interval is checked; at least 2
+	 */
+	public void setMinReplications(int minReplications) {
+		this.minReplications = minReplications;
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	public void setConfidence(double confidence) {
+		if (confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException("confidence " + confidence + " out of bounds (0,1)");
+		}
+		this.confidence = confidence;
+	}
+
+	public boolean isShareBurnIn() {
+		return shareBurnIn;
+	}
+
+	/**
+	 * @param shareBurnIn false to simulate every replication from the start
+	 */
+	public void setShareBurnIn(boolean shareBurnIn) {
+		this.shareBurnIn = shareBurnIn;
+	}
+
+	public BurnInCache getBurnInCache() {
+		return burnInCache;
+	}
+
+	/**
+	 * @param burnInCache the cache for the burn-ins of seeded replications, or null
+	 */
+	public void setBurnInCache(BurnInCache burnInCache) {
+		this.burnInCache = burnInCache;
+	}
+
+	public synchronized int getCompleted() {
+		return completed;
+	}
+
+	public synchronized int getFailed() {
+		return failed;
+	}
+
+	public List<ModelParameters> getPoints() {
+		return points;
+	}
+}
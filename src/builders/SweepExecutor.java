@@ -0,0 +1,276 @@
+package builders;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the points of a parameter sweep in parallel inside one JVM.
+ * <p>
+ * Runs are spread over a work-stealing {@link ForkJoinPool}. As each run
+ * finishes, one row is appended to a single results table holding the run
+ * number, every resolved parameter value and the run's summary values (the
+ * fields of {@code simulation_results.txt}), so the table replaces the Repast
+ * batch {@code sim_modeloutputs} and {@code batch_param_map} file pair. Rows
+ * are written in completion order; the {@code run} column gives the sweep
+ * order. The detailed output files of run {@code i} go to
+ * {@code run_<i>} under the results table's directory.
+ * </p>
+ * <p>
+ * Runs that differ only in their {@link ModelParameters#POST_BURN_IN_PARAMETERS
+ * post-burn-in parameters} share one burn-in: it is simulated once and each
+ * run is forked from its {@link BurnInSnapshot}. Repeated runs with identical
+ * parameters are replications and each get a burn-in of their own. A forked
+ * run's detailed output files cover only the period after the burn-in. With a
+ * {@link BurnInCache}, the burn-ins of seeded runs are also loaded from and
+ * saved to disk.
+ * </p>
+ */
+public class SweepExecutor {
+
+	private final List<ModelParameters> runs;
+	private final File resultsFile;
+	private final List<String> parameterNames;
+	private boolean shareBurnIn = true;
+	private BurnInCache burnInCache;
+	private PrintWriter results;
+	private int completed = 0;
+	private int failed = 0;
+
+	/**
+	 * @param runs        the resolved parameters of each run, in sweep order
+	 * @param resultsFile the results table to write
+	 */
+	public SweepExecutor(List<ModelParameters> runs, File resultsFile) {
+		if (runs.isEmpty()) {
+			throw new IllegalArgumentException("Sweep has no runs");
+		}
+		this.runs = runs;
+		this.resultsFile = resultsFile;
+		this.parameterNames = new ArrayList<>(runs.get(0).toMap().keySet());
+	}
+
+	/**
+	 * Executes every run and writes the results table.
+	 *
+	 * @param parallelism the number of runs to execute at a time
+	 * @return the number of runs that failed
+	 * @throws IOException if the results table cannot be written
+	 */
+	public int execute(int parallelism) throws IOException {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism " + parallelism + " must be at least 1");
+		}
+		File directory = resultsFile.getAbsoluteFile().getParentFile();
+		try (PrintWriter writer = new PrintWriter(resultsFile)) {
+			results = writer;
+			results.println("run," + String.join(",", parameterNames) + "," + FacilityEpiSim.SUMMARY_HEADER);
+			results.flush();
+			List<int[]> groups = groupByBurnIn();
+			ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, runs.size()));
+			try {
+				pool.invoke(new GroupRange(directory, groups, 0, groups.size()));
+			} finally {
+				pool.shutdown();
+			}
+		} finally {
+			results = null;
+		}
+		return failed;
+	}
+
+	/**
+	 * Groups the runs that can fork from one burn-in. The k-th run with a given
+	 * set of parameters joins the k-th burn-in of its group, so replications
+	 * stay independent.
+	 *
+	 * @return the run indices of each group, in sweep order
+	 */
+	private List<int[]> groupByBurnIn() {
+		Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+		Map<Map<String, Object>, Integer> occurrences = new HashMap<>();
+		for (int i = 0; i < runs.size(); i++) {
+			ModelParameters params = runs.get(i);
+			Object key = i;
+			if (shareBurnIn) {
+				int occurrence = occurrences.merge(params.toMap(), 1, Integer::sum);
+				key = Arrays.asList(params.burnInValues(), occurrence);
+			}
+			groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+		}
+		List<int[]> result = new ArrayList<>(groups.size());
+		for (List<Integer> group : groups.values()) {
+			result.add(group.stream().mapToInt(Integer::intValue).toArray());
+		}
+		return result;
+	}
+
+	/**
+	 * Splits a range of burn-in groups in halves until a single group remains,
+	 * so idle workers steal the other halves.
+	 */
+	private final class GroupRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File directory;
+		private final List<int[]> groups;
+		private final int from;
+		private final int to;
+
+		GroupRange(File directory, List<int[]> groups, int from, int to) {
+			this.directory = directory;
+			this.groups = groups;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new GroupRange(directory, groups, from, mid), new GroupRange(directory, groups, mid, to));
+				return;
+			}
+			int[] group = groups.get(from);
+			ModelParameters first = runs.get(group[0]);
+			boolean cached = burnInCache != null && first.hasRandomSeed();
+			if (group.length == 1 && !cached) {
+				int index = group[0];
+				ModelParameters params = runs.get(index);
+				try {
+					FacilityEpiSim model = HeadlessRunner.run(params, runDirectory(directory, index));
+					writeRow(index, params, model.getSummaryRow());
+				} catch (RuntimeException e) {
+					recordFailure(index, e);
+				}
+				return;
+			}
+			BurnInSnapshot snapshot;
+			try {
+				snapshot = cached ? burnInCache.burnIn(first) : BurnInSnapshot.burnIn(first);
+			} catch (RuntimeException e) {
+				for (int index : group) {
+					recordFailure(index, e);
+				}
+				return;
+			}
+			new ForkRange(directory, snapshot, group, 0, group.length).compute();
+		}
+	}
+
+	/**
+	 * Forks a range of runs from one burn-in snapshot, splitting in halves.
+	 */
+	private final class ForkRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File directory;
+		private final BurnInSnapshot snapshot;
+		private final int[] group;
+		private final int from;
+		private final int to;
+
+		ForkRange(File directory, BurnInSnapshot snapshot, int[] group, int from, int to) {
+			this.directory = directory;
+			this.snapshot = snapshot;
+			this.group = group;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ForkRange(directory, snapshot, group, from, mid),
+						new ForkRange(directory, snapshot, group, mid, to));
+				return;
+			}
+			int index = group[from];
+			ModelParameters params = runs.get(index);
+			try {
+				FacilityEpiSim model = HeadlessRunner.run(snapshot, params, runDirectory(directory, index));
+				writeRow(index, params, model.getSummaryRow());
+			} catch (RuntimeException e) {
+				recordFailure(index, e);
+			}
+		}
+	}
+
+	private static File runDirectory(File directory, int index) {
+		return new File(directory, "run_" + (index + 1));
+	}
+
+	private synchronized void writeRow(int index, ModelParameters params, String summaryRow) {
+		results.println(formatRow(index + 1, parameterNames, params) + "," + summaryRow);
+		results.flush();
+		completed++;
+		System.out.println("Run " + (index + 1) + " finished (" + completed + " of " + runs.size() + ")");
+	}
+
+	/**
+	 * Formats the leading columns of a results row.
+	 *
+	 * @param label          the value of the first column
+	 * @param parameterNames the parameter columns, in order
+	 * @param params         the run's parameters
+	 * @return the label followed by the parameter values, comma separated
+	 */
+	static String formatRow(Object label, List<String> parameterNames, ModelParameters params) {
+		StringBuilder row = new StringBuilder();
+		row.append(label);
+		Map<String, Object> values = params.toMap();
+		for (String name : parameterNames) {
+			row.append(',').append(values.get(name));
+		}
+		return row.toString();
+	}
+
+	private synchronized void recordFailure(int index, RuntimeException e) {
+		failed++;
+		System.err.println("Run " + (index + 1) + " failed: " + e);
+		e.printStackTrace();
+	}
+
+	public int getCompleted() {
+		return completed;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public boolean isShareBurnIn() {
+		return shareBurnIn;
+	}
+
+	/**
+	 * @param shareBurnIn false to simulate every run from the start, e.g. to
+	 *                    get complete output files for each run
+	 */
+	public void setShareBurnIn(boolean shareBurnIn) {
+		this.shareBurnIn = shareBurnIn;
+	}
+
+	public BurnInCache getBurnInCache() {
+		return burnInCache;
+	}
+
+	/**
+	 * @param burnInCache the cache to take the burn-ins of seeded runs from,
+	 *                    or null to simulate every burn-in
+	 */
+	public void setBurnInCache(BurnInCache burnInCache) {
+		this.burnInCache = burnInCache;
+	}
+}
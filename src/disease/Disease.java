@@ -1,21 +1,22 @@
 package disease;
 
+import java.io.Serializable;
+
 import agents.Person;
-import repast.simphony.parameter.Parameters;
+import builders.ModelParameters;
 
-public class Disease {
+public class Disease implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private int type;
 	private int simIndex;
 	private String diseaseName;
-	private Parameters params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
+	private ModelParameters params;
 	
 
 
 	public double getBaselineBetaValue(int facilityType){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		
-		double longTermAcuteCareBeta = params.getDouble("beta");
+		double longTermAcuteCareBeta = params.getBeta();
 		double acuteCareBeta = longTermAcuteCareBeta;
 		
 
@@ -29,9 +30,7 @@ public class Disease {
 	}
 
 	public double getMeanTimeToClinicalDetection(int facilityType){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-
-		double acuteCareMean = (Double) params.getValue("meanDetectionTime");
+		double acuteCareMean = params.getMeanDetectionTime();
 		//double nhChangeFactor = (Double) params.getValue("nursingHomeDetectionTimeFactor");
 		//double nursingHomeMean = acuteCareMean * nhChangeFactor;
 
@@ -46,40 +45,33 @@ public class Disease {
 
 
 	public String getDiseaseName(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (String) params.getValue("diseaseName");
+		return params.getDiseaseName();
 	}
 
 	public double getAvgDecolonizationTime(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Double) params.getValue("avgDecolonizationTime");
+		return params.getAvgDecolonizationTime();
 	}
 
 	public double getProbSurveillanceDetection(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Double) params.getValue("probSurveillanceDetection");
+		return params.getProbSurveillanceDetection();
 	}
 
 
 	public boolean allowImportationsDuringBurnIn(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Boolean) params.getValue("allowImportationsDuringBurnIn");
+		return params.allowImportationsDuringBurnIn();
 	}
 
 	public boolean isolatePatientWhenDetected(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Boolean) params.getValue("isolatePatientWhenDetected");
+		return params.isolatePatientWhenDetected();
 	}
 
 	//Todo:  What if the first run NEVER turns on active surveillance after burn in?
 	public boolean isActiveSurveillanceAgent(){
-		params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Boolean) params.getValue("isActiveSurveillanceAgent");
+		return params.isActiveSurveillanceAgent();
 	}
 
 	public double getImportationProb(){
-	    params = repast.simphony.engine.environment.RunEnvironment.getInstance().getParameters();
-		return (Double) params.getValue("importationRate");
+		return params.getImportationRate();
 	}
 	public int getSimIndex() {
 		return simIndex;
@@ -96,4 +88,12 @@ public class Disease {
 	public void setDiseaseName(String diseaseName) {
 	    this.diseaseName = diseaseName;
 	}
-}
\ No newline at end of file
+
+	public ModelParameters getParameters() {
+		return params;
+	}
+
+	public void setParameters(ModelParameters params) {
+		this.params = params;
+	}
+}
@@ -2,23 +2,34 @@ package disease;
 
 import agentcontainers.Facility;
 import agentcontainers.Region;
-import agents.Person;
-import builders.FacilityEpiSim;
+import builders.RunContext;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
 import org.apache.commons.math3.ode.events.EventHandler;
 
-import repast.simphony.engine.schedule.ISchedulableAction;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ScheduleParameters;
-import repast.simphony.engine.schedule.ScheduledMethod;
+import engine.EventScheduler;
+import engine.EventTarget;
+import engine.ScheduledEvent;
+import utils.Samplers;
+import utils.SplitMix64;
+import utils.WeightedSampler;
+
+public class FacilityOutbreak implements EventTarget, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int EVENT_TRANSMISSION = 1;
+	public static final int EVENT_TAU_LEAP = 2;
+
+	/** Leaps expected to carry fewer transmissions than this are replaced by exact steps. */
+	private static final double TAU_LEAP_MIN_EVENTS = 10.0;
+	/** Longest leap, in days, so admissions and discharges are not leapt over for long. */
+	private static final double TAU_LEAP_MAX_INTERVAL = 1.0;
 
-public class FacilityOutbreak {
 	private Disease disease;
 	public Facility facility;
 	private double numSusceptibleNow = 0;
@@ -32,9 +43,6 @@ public class FacilityOutbreak {
 	private double prevalence;
 	private String diseaseName;
 	private int numAdmissionsTallied = 0;
-	private int popTallied = 0;
-	private double popTalliedColonized = 0;
-	private double avgPrevalence;
 	private int numSusceptibleNonIsoNow = 0;
 	private int numSusceptibleIsoNow = 0;
 	private int numColonizedNonIsoNow = 0;
@@ -45,174 +53,434 @@ public class FacilityOutbreak {
 	private int colonizedDischargesTallied = 0;
 	private double avgDischargePrevalence;
 	private double transmissionRate = 0.0;
-	private ISchedule schedule;
+	private EventScheduler schedule;
 	private boolean stop = false;
 	private Region region;
-	
-
-	ISchedulableAction nextAction;
-	ExponentialDistribution distro;
+	// Contribution-weighted samplers for choosing the infector and the newly colonized patient
+	private WeightedSampler<PersonDisease> colonizedPool = new WeightedSampler<>();
+	private WeightedSampler<PersonDisease> susceptiblePool = new WeightedSampler<>();
+	// Time integrals of the census, colonized and isolated counts since
+	// windowStart, advanced to the current time before every change of the
+	// tallies (see advanceIntegrals)
+	private double windowStart = 0.0;
+	private double lastTallyChange = 0.0;
+	private double patientTime = 0.0;
+	private double colonizedPatientTime = 0.0;
+	private double isolatedPatientTime = 0.0;
+
+
+	ScheduledEvent nextAction;
+	// Next-reaction method state (see setTransmissionRate)
+	private boolean rescaleOnRateChange = true;
+	private double remainingHazard = 0.0;
+	// Approximate tau-leaping state (see doTauLeap)
+	private boolean tauLeaping = false;
+	private double tauLeapEpsilon = 0.03;
+	private boolean leaping = false;
+	private ScheduledEvent leapAction;
+	private double leapPropensity;
+	private double leapInterval;
+	private int tauLeapsTaken = 0;
 	double meanIntraEventTime;
-	private PrintWriter logWriter;
-	private java.io.FileOutputStream logFileStream;
-
-	public FacilityOutbreak(double intra_event_time, Disease disease2) {
-		schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
+	private boolean batchRun;
+	// Transmission times and the pairs they involve come from the run's transmission stream
+	private final SplitMix64 random;
+	private transient PrintWriter logWriter;
+	private transient java.io.FileOutputStream logFileStream;
+
+	public FacilityOutbreak(double intra_event_time, Disease disease2, RunContext context) {
+		schedule = context.getScheduler();
 		disease = disease2;
+		random = context.getRandomStreams().getTransmission();
+		openLogWriter(context);
+	}
+
+	/**
+	 * Opens the transmission log, unless the run is a batch run. A run forked
+	 * from a burn-in snapshot reopens it in the fork's own directory.
+	 *
+	 * @param context the run whose output directory receives the log
+	 */
+	public void openLogWriter(RunContext context) {
+		batchRun = context.isBatchRun();
 		try {
-			if(!FacilityEpiSim.isBatchRun) {
-				logFileStream = new java.io.FileOutputStream("transmissions.txt");
+			if(!batchRun) {
+				logFileStream = new java.io.FileOutputStream(context.outputFile("transmissions.txt"));
 				logWriter = new PrintWriter(new java.io.OutputStreamWriter(logFileStream), true);
 				logWriter.println("time,from_patientID,to_patientID");
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		// transmission();
 	}
 
-	public void transmission() {
-		stop = false;
-		double currTime = schedule.getTickCount();
-		double elapse = distro.sample();
-		ScheduleParameters params = ScheduleParameters.createOneTime(currTime + elapse);
-		nextAction = schedule.schedule(params, this, "doTransmission");
+	@Override
+	public void handleEvent(int eventType) {
+		switch (eventType) {
+		case EVENT_TRANSMISSION:
+			doTransmission();
+			// The fired event is spent. The facility defers its rate update to the end
+			// of this event, so refresh this outbreak's rate now and draw the next step.
+			updateTransmissionRate(facility.getRegion());
+			scheduleNextStep();
+			break;
+		case EVENT_TAU_LEAP:
+			doTauLeap();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown FacilityOutbreak event type " + eventType);
+		}
 	}
 
-	public void doTransmission() {
-		PersonDisease pdS = null;
-		PersonDisease pdC = null;
-		double unifS = uniform() * numSusceptibleEffective;
-		double unifC = uniform() * numContagiousEffective;
-		double uS = 0.0;
-		double uC = 0.0;
-		for (Person p : facility.getCurrentPatients()) {
-			PersonDisease pd = p.getDiseases().get(disease.getSimIndex());// Fix
-			if (pd.isColonized() && uC < unifC) {
-				uC += pd.getTransmissionRateContribution();
-				if (uC > unifC) {
-					pdC = pd;
-				}
-			}
-			if (!pd.isColonized() && uS <= unifS) {
-				uS += pd.getTransmissionRateContribution();
-				if (uS > unifS) {
-					pdS = pd;
-				}
-			}
-			// TODO: BUG - This block is INSIDE the for loop but should be OUTSIDE.
-			// Once pdS is set, colonize() and addAcquisition() are called on every
-			// remaining iteration until break, causing multiple colonizations/acquisitions.
-			if (pdS != null) {
-				pdS.colonize();
-				pdS.addAcquisition();
-			}
-			if (uC > unifC && uS > unifS) {
-				break;
+	/**
+	 * Ends a tau-leap: applies a Poisson number of transmissions for the leap
+	 * interval at the propensity frozen when the leap was scheduled, then
+	 * chooses the next step.
+	 */
+	public void doTauLeap() {
+		long count = Samplers.poisson(random, leapPropensity * leapInterval);
+		leaping = true;
+		for (int i = 0; i < count && numContagiousEffective > 0 && numSusceptibleEffective > 0; i++) {
+			doTransmission();
+		}
+		// Record the post-leap rate before choosing the next step.
+		updateTransmissionRate(facility.getRegion());
+		leaping = false;
+		tauLeapsTaken++;
+		scheduleNextStep();
+	}
+
+	/**
+	 * Chooses a tau-leap interval for S + C -> 2C following Cao, Gillespie and
+	 * Petzold (2006): the leap is bounded so that the expected change and the
+	 * standard deviation of the change in S and C stay within
+	 * {@code tauLeapEpsilon} of their current values.
+	 *
+	 * @return the leap interval, or 0 if the leap would be too short to beat exact stepping
+	 */
+	private double selectLeapInterval() {
+		double a = transmissionRate;
+		if (a <= 0) {
+			return 0.0;
+		}
+		// Both species change by one per transmission, so |mu| = sigma^2 = a.
+		double boundS = Math.max(tauLeapEpsilon * numSusceptibleNow, 1.0);
+		double boundC = Math.max(tauLeapEpsilon * numColonizedNow, 1.0);
+		double bound = Math.min(boundS, boundC);
+		double tau = Math.min(bound / a, bound * bound / a);
+		tau = Math.min(tau, TAU_LEAP_MAX_INTERVAL);
+		return a * tau < TAU_LEAP_MIN_EVENTS ? 0.0 : tau;
+	}
+
+	/**
+	 * Schedules the next transmission step: a tau-leap when tau-leaping is
+	 * enabled and the propensity is high enough, otherwise an exact event.
+	 */
+	private void scheduleNextStep() {
+		if (tauLeaping && !(nextAction != null && nextAction.isPending())
+				&& !(leapAction != null && leapAction.isPending())) {
+			double tau = selectLeapInterval();
+			if (tau > 0) {
+				leapPropensity = transmissionRate;
+				leapInterval = tau;
+				leapAction = schedule.schedule(schedule.getTickCount() + tau, this, EVENT_TAU_LEAP);
+				return;
 			}
-
 		}
+		scheduleNextTransmission();
+	}
+
+	public void doTransmission() {
+		// Pair choice is weighted by transmission rate contribution within the
+		// colonized and susceptible pools; both totals are positive whenever
+		// the transmission rate is.
+		PersonDisease pdC = colonizedPool.sample(uniform());
+		PersonDisease pdS = susceptiblePool.sample(uniform());
 		if (pdC == null || pdS == null) {
-			error("Transmission pair choice failure\nuS = %f; unifS = %f; nS = %f;\nuC = %f; unifC = %f; nC = %f\n", uS,
-					unifS, numSusceptibleEffective, uC, unifC, numContagiousEffective);
-		} else if (pdC.isInitialInfection()) {
+			error("Transmission pair choice failure\nnS = %f; nC = %f\n", numSusceptibleEffective,
+					numContagiousEffective);
+			return;
+		}
+		if (pdC.isInitialInfection()) {
 			facility.getRegion().numTransmissionsFromInitialCase++;
 		}
-		
-		if (pdC != null && pdS != null) {
-			transmissionsTally++;
-			double transmissionTime = schedule.getTickCount();
-			boolean pastBurnIn = !facility.getRegion().isInBurnInPeriod();
-			if(!FacilityEpiSim.isBatchRun && !stop && pastBurnIn) {
-				if (logWriter != null) {
-					String line = String.format("%.2f,%d,%d", transmissionTime,
-							pdC.hashCode(), pdS.hashCode());
-					logWriter.println(line);
-					loggedTransmissions++;
-				} else if (loggedTransmissions > 0) {
-					System.err.printf("WARNING: logWriter is null at tick %.2f (logged %d transmissions before this)%n",
-							transmissionTime, loggedTransmissions);
-					loggedTransmissions = -1; // Only print warning once
-				}
+		pdS.colonize();
+		pdS.addAcquisition();
+
+		transmissionsTally++;
+		double transmissionTime = schedule.getTickCount();
+		boolean pastBurnIn = !facility.getRegion().isInBurnInPeriod();
+		if(!batchRun && !stop && pastBurnIn) {
+			if (logWriter != null) {
+				String line = String.format("%.2f,%d,%d", transmissionTime,
+						pdC.hashCode(), pdS.hashCode());
+				logWriter.println(line);
+				loggedTransmissions++;
+			} else if (loggedTransmissions > 0) {
+				System.err.printf("WARNING: logWriter is null at tick %.2f (logged %d transmissions before this)%n",
+						transmissionTime, loggedTransmissions);
+				loggedTransmissions = -1; // Only print warning once
 			}
 		}
 		transmissionsTally++;
 	}
 
+	/**
+	 * Adds a newly admitted patient's disease state to the running S/C tallies.
+	 * The tallies are kept incrementally so that a rate update does not need to
+	 * rescan the facility census.
+	 *
+	 * @param pd the admitted patient's state for this outbreak's disease
+	 */
+	public void addPatient(PersonDisease pd) {
+		if (pd.talliedOutbreak != null) {
+			return;
+		}
+		pd.talliedOutbreak = this;
+		tally(pd);
+	}
+
+	/**
+	 * Removes a discharged patient's contribution from the running S/C tallies.
+	 *
+	 * @param pd the discharged patient's state for this outbreak's disease
+	 */
+	public void removePatient(PersonDisease pd) {
+		if (pd.talliedOutbreak != this) {
+			return;
+		}
+		untally(pd);
+		pd.talliedOutbreak = null;
+	}
+
+	/**
+	 * Re-tallies a patient whose colonization, isolation or transmission rate
+	 * contribution may have changed: the previously recorded contribution is
+	 * subtracted and the current one added.
+	 *
+	 * @param pd the patient's state for this outbreak's disease
+	 */
+	public void updatePatient(PersonDisease pd) {
+		if (pd.talliedOutbreak != this) {
+			return;
+		}
+		if (pd.talliedColonized == pd.isColonized() && pd.talliedIsolated == pd.getPerson().isIsolated()
+				&& pd.talliedContribution == pd.getTransmissionRateContribution()) {
+			return;
+		}
+		untally(pd);
+		tally(pd);
+	}
+
+	private void untally(PersonDisease pd) {
+		advanceIntegrals();
+		double contribution = pd.talliedContribution;
+		(pd.talliedColonized ? colonizedPool : susceptiblePool).remove(pd.samplerSlot);
+		pd.samplerSlot = -1;
+		if (pd.talliedColonized) {
+			numContagiousEffective -= contribution;
+			if (pd.talliedIsolated)
+				numColonizedIsoNow--;
+			else
+				numColonizedNonIsoNow--;
+		} else {
+			numSusceptibleEffective -= contribution;
+			if (pd.talliedIsolated)
+				numSusceptibleIsoNow--;
+			else
+				numSusceptibleNonIsoNow--;
+		}
+		refreshTotals();
+	}
+
+	private void tally(PersonDisease pd) {
+		advanceIntegrals();
+		pd.talliedColonized = pd.isColonized();
+		pd.talliedIsolated = pd.getPerson().isIsolated();
+		pd.talliedContribution = pd.getTransmissionRateContribution();
+		pd.samplerSlot = (pd.talliedColonized ? colonizedPool : susceptiblePool).add(pd, pd.talliedContribution);
+		if (pd.talliedColonized) {
+			numContagiousEffective += pd.talliedContribution;
+			if (pd.talliedIsolated)
+				numColonizedIsoNow++;
+			else
+				numColonizedNonIsoNow++;
+		} else {
+			numSusceptibleEffective += pd.talliedContribution;
+			if (pd.talliedIsolated)
+				numSusceptibleIsoNow++;
+			else
+				numSusceptibleNonIsoNow++;
+		}
+		refreshTotals();
+	}
+
+	/**
+	 * Adds the patient-time since the last change of the tallies to the time
+	 * integrals. The counts are constant between changes, so the integrals are
+	 * exact, and they cost one step per change rather than a pass over the
+	 * census per day.
+	 */
+	private void advanceIntegrals() {
+		double now = schedule.getTickCount();
+		double elapsed = now - lastTallyChange;
+		if (elapsed > 0) {
+			patientTime += elapsed * (numSusceptibleNow + numColonizedNow);
+			colonizedPatientTime += elapsed * numColonizedNow;
+			isolatedPatientTime += elapsed * (numSusceptibleIsoNow + numColonizedIsoNow);
+			lastTallyChange = now;
+		}
+	}
+
+	/**
+	 * Restarts the time-averaged prevalence, census and isolation occupancy
+	 * at the current time; called at the end of the burn-in period so the
+	 * averages cover the measurement period only.
+	 */
+	public void startMeasurementWindow() {
+		advanceIntegrals();
+		windowStart = schedule.getTickCount();
+		lastTallyChange = windowStart;
+		patientTime = 0.0;
+		colonizedPatientTime = 0.0;
+		isolatedPatientTime = 0.0;
+	}
+
+	// An integral including the patient-time since the last change
+	private double integralToNow(double integral, double count) {
+		return integral + (schedule.getTickCount() - lastTallyChange) * count;
+	}
+
+	/**
+	 * @return colonized patient-time over patient-time since the start of the
+	 *         measurement window, or NaN if there has been no patient-time
+	 */
+	public double getTimeAveragedPrevalence() {
+		double total = integralToNow(patientTime, numSusceptibleNow + numColonizedNow);
+		return total > 0 ? integralToNow(colonizedPatientTime, numColonizedNow) / total : Double.NaN;
+	}
+
+	/**
+	 * @return the mean number of patients since the start of the measurement
+	 *         window, or NaN if the window has no length
+	 */
+	public double getTimeAveragedCensus() {
+		return perUnitTime(integralToNow(patientTime, numSusceptibleNow + numColonizedNow));
+	}
+
+	/**
+	 * @return the mean number of isolated patients since the start of the
+	 *         measurement window, or NaN if the window has no length
+	 */
+	public double getTimeAveragedIsolated() {
+		return perUnitTime(integralToNow(isolatedPatientTime, numSusceptibleIsoNow + numColonizedIsoNow));
+	}
+
+	private double perUnitTime(double integral) {
+		double length = schedule.getTickCount() - windowStart;
+		return length > 0 ? integral / length : Double.NaN;
+	}
+
+	private void refreshTotals() {
+		numSusceptibleNow = numSusceptibleNonIsoNow + numSusceptibleIsoNow;
+		numColonizedNow = numColonizedNonIsoNow + numColonizedIsoNow;
+		// Snap accumulated round-off back to zero once a pool empties.
+		if (numColonizedNow == 0)
+			numContagiousEffective = 0.0;
+		if (numSusceptibleNow == 0)
+			numSusceptibleEffective = 0.0;
+	}
+
 	public void updateTransmissionRate(Region r) {
 		region = r;
 		double newTransmissionRate;
 		/*
-		 * C = colonized S = susceptible I = isolated
+		 * C = colonized S = susceptible I = isolated. The tallies are maintained
+		 * by addPatient/removePatient/updatePatient as patient states change.
 		 */
-		int nC = 0;
-		int nS = 0;
-		int nCI = 0;
-		int nSI = 0;
-		double cScore = 0.0;
-		double sScore = 0.0;
-		for (Person p : facility.getCurrentPatients()) {
-			if (p.getDiseases().size() != 0) {
-				PersonDisease pd = p.getDiseases().get(disease.getSimIndex());
-				if (pd.isColonized()) {
-					cScore += pd.getTransmissionRateContribution();
-					if (p.isIsolated())
-						nCI++;
-					else
-						nC++;
-				} else {
-					sScore += pd.getTransmissionRateContribution();
-					if (p.isIsolated())
-						nSI++;
-					else
-						nS++;
-				}
-			}
-		}
-		numSusceptibleNonIsoNow = nS;
-		numColonizedNonIsoNow = nC;
-		numSusceptibleIsoNow = nSI;
-		numColonizedIsoNow = nCI;
-		numSusceptibleNow = nS + nSI;
-		numColonizedNow = nC + nCI;
 		if (region.people.size() != 0) {
 			prevalence = 1.0 * numColonizedNow / region.people.size();
 		}
-		numContagiousEffective = cScore;
-		numSusceptibleEffective = sScore;
 		newTransmissionRate = disease.getBaselineBetaValue(facility.getType()) * numContagiousEffective
 				* numSusceptibleEffective / facility.getCurrentPatients().size();
 		setTransmissionRate(newTransmissionRate);
 	}
 
+	/**
+	 * Sets the facility transmission rate and keeps the pending transmission
+	 * event consistent with it.
+	 * <p>
+	 * With {@code rescaleOnRateChange} (the default) the next-reaction method
+	 * of Gibson and Bruck is used: the pending event is moved in place to
+	 * {@code t + (tOld - t) * rOld / rNew}, which is exact for exponential
+	 * waiting times and needs no cancellation or new random draw. When the rate
+	 * drops to zero the unused integrated hazard is kept and spent once the rate
+	 * becomes positive again. Otherwise the pending event is cancelled and a
+	 * fresh waiting time drawn, as before.
+	 * </p>
+	 * <p>
+	 * While a tau-leap is pending the rate is only recorded; the leap uses the
+	 * propensity from when it was scheduled.
+	 * </p>
+	 *
+	 * @param newTransmissionRate the new rate of transmission events per day
+	 */
 	public void setTransmissionRate(double newTransmissionRate) {
+		if (tauLeaping && (leaping || (leapAction != null && leapAction.isPending()))) {
+			// Propensity is frozen for the current leap; the next step is chosen when it ends.
+			transmissionRate = newTransmissionRate;
+			return;
+		}
 		if (transmissionRate != newTransmissionRate) {
-			if (nextAction != null) {
-				schedule.removeAction(nextAction);
-			}
 			double oldRate = transmissionRate;
 			transmissionRate = newTransmissionRate;
-			if (transmissionRate > 0) {
-				distro = new ExponentialDistribution(1 / transmissionRate);
-				double timeToNextEvent = distro.sample();
-				ScheduleParameters params = ScheduleParameters.createOneTime(schedule.getTickCount() + timeToNextEvent);
-				nextAction = schedule.schedule(params, this, "doTransmission");
-			} else if (oldRate > 0) {
+			double now = schedule.getTickCount();
+			boolean pending = nextAction != null && nextAction.isPending();
+			if (rescaleOnRateChange && pending && oldRate > 0) {
+				if (transmissionRate > 0) {
+					schedule.reschedule(nextAction, now + (nextAction.getTime() - now) * oldRate / transmissionRate);
+				} else {
+					remainingHazard = (nextAction.getTime() - now) * oldRate;
+					schedule.cancel(nextAction);
+					nextAction = null;
+				}
+			} else {
+				if (pending) {
+					schedule.cancel(nextAction);
+				}
+				nextAction = null;
+				scheduleNextStep();
+			}
+			if (transmissionRate <= 0 && oldRate > 0) {
 				// Rate dropped to zero - log this
 				System.out.printf("Transmission rate dropped to 0 at tick %.2f (was %.6f, S=%.2f, C=%.2f)%n",
-						schedule.getTickCount(), oldRate, numSusceptibleEffective, numContagiousEffective);
+						now, oldRate, numSusceptibleEffective, numContagiousEffective);
 			}
 		}
 	}
 
-	private void error(String message, double... values) {
-		System.err.printf(message, values);
+	/**
+	 * Schedules the next transmission event at the current rate, unless one is
+	 * already pending or the rate is zero.
+	 */
+	private void scheduleNextTransmission() {
+		if (transmissionRate <= 0 || (nextAction != null && nextAction.isPending())) {
+			return;
+		}
+		double timeToNextEvent;
+		if (rescaleOnRateChange && remainingHazard > 0) {
+			timeToNextEvent = remainingHazard / transmissionRate;
+		} else if (rescaleOnRateChange) {
+			timeToNextEvent = Samplers.exponential(random, 1.0) / transmissionRate;
+		} else {
+			timeToNextEvent = Samplers.exponential(random, 1 / transmissionRate);
+		}
+		remainingHazard = 0.0;
+		nextAction = schedule.schedule(schedule.getTickCount() + timeToNextEvent, this, EVENT_TRANSMISSION);
 	}
 
-	public void updatePrevalenceTally() {
-		popTallied = region.people.size();
-		popTalliedColonized += numColonizedNow;
-		avgPrevalence = 1.0 * popTalliedColonized / (double) popTallied;
+	private void error(String message, double... values) {
+		System.err.printf(message, values);
 	}
 
 	public void updateStayTally(PersonDisease pd) {
@@ -234,7 +502,7 @@ public class FacilityOutbreak {
 	}
 
 	double uniform() {
-		return Math.random();
+		return random.nextDouble();
 	}
 
 	public void setFacility(Facility f) {
@@ -325,28 +593,12 @@ public class FacilityOutbreak {
 		this.numAdmissionsTallied = numAdmissionsTallied;
 	}
 
-	public int getPopTallied() {
-		return popTallied;
-	}
-
-	public void setPopTallied(int popTallied) {
-		this.popTallied = popTallied;
-	}
-
-	public double getPopTalliedColonized() {
-		return popTalliedColonized;
-	}
-
-	public void setPopTalliedColonized(double popTalliedColonized) {
-		this.popTalliedColonized = popTalliedColonized;
-	}
-
+	/**
+	 * @return the time-averaged prevalence of the measurement window
+	 * @see #getTimeAveragedPrevalence()
+	 */
 	public double getAvgPrevalence() {
-		return avgPrevalence;
-	}
-
-	public void setAvgPrevalence(double avgPrevalence) {
-		this.avgPrevalence = avgPrevalence;
+		return getTimeAveragedPrevalence();
 	}
 
 	public int getNumSusceptibleNonIsoNow() {
@@ -421,11 +673,11 @@ public class FacilityOutbreak {
 		this.avgDischargePrevalence = avgDischargePrevalence;
 	}
 
-	public ISchedule getSchedule() {
+	public EventScheduler getSchedule() {
 		return schedule;
 	}
 
-	public void setSchedule(ISchedule schedule) {
+	public void setSchedule(EventScheduler schedule) {
 		this.schedule = schedule;
 	}
 
@@ -437,22 +689,14 @@ public class FacilityOutbreak {
 		this.stop = stop;
 	}
 
-	public ISchedulableAction getNextAction() {
+	public ScheduledEvent getNextAction() {
 		return nextAction;
 	}
 
-	public void setNextAction(ISchedulableAction nextAction) {
+	public void setNextAction(ScheduledEvent nextAction) {
 		this.nextAction = nextAction;
 	}
 
-	public ExponentialDistribution getDistro() {
-		return distro;
-	}
-
-	public void setDistro(ExponentialDistribution distro) {
-		this.distro = distro;
-	}
-
 	public double getMeanIntraEventTime() {
 		return meanIntraEventTime;
 	}
@@ -469,6 +713,37 @@ public class FacilityOutbreak {
 		return transmissionRate;
 	}
 
+	public boolean isRescaleOnRateChange() {
+		return rescaleOnRateChange;
+	}
+
+	public void setRescaleOnRateChange(boolean rescaleOnRateChange) {
+		this.rescaleOnRateChange = rescaleOnRateChange;
+	}
+
+	public boolean isTauLeaping() {
+		return tauLeaping;
+	}
+
+	/**
+	 * Enables approximate tau-leaping of transmissions. Intended for screening
+	 * sweeps on large facilities; final runs should stay exact.
+	 *
+	 * @param tauLeaping     true to leap when enough transmissions are expected per leap
+	 * @param tauLeapEpsilon the relative change in S and C allowed per leap
+	 */
+	public void setTauLeaping(boolean tauLeaping, double tauLeapEpsilon) {
+		if (tauLeapEpsilon <= 0 || tauLeapEpsilon >= 1) {
+			throw new IllegalArgumentException("tauLeapEpsilon " + tauLeapEpsilon + " must be in (0, 1)");
+		}
+		this.tauLeaping = tauLeaping;
+		this.tauLeapEpsilon = tauLeapEpsilon;
+	}
+
+	public int getTauLeapsTaken() {
+		return tauLeapsTaken;
+	}
+
 	public void closeLogWriter() {
 		stop = true;  // Prevent any more writes FIRST
 		double tick = schedule.getTickCount();
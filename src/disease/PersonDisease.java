@@ -1,17 +1,22 @@
 package disease;
 
 import agents.Person;
-import builders.FacilityEpiSim;
+import builders.RunContext;
 
-import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
-import repast.simphony.engine.schedule.ScheduleParameters;
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.schedule.ISchedulableAction;
+import engine.EventRegistry;
+import engine.EventScheduler;
+import engine.EventTarget;
+import engine.ScheduledEvent;
+import utils.Samplers;
 
-public class PersonDisease {
+public class PersonDisease implements EventTarget, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int EVENT_DECOLONIZATION = 1;
+	public static final int EVENT_CLINICAL_DETECTION = 2;
 
 	private Disease disease;
 	private Person person;
@@ -23,37 +28,27 @@ public class PersonDisease {
 	private boolean initialInfection = false;
 	private int detectionCount = 0;
 
-	private ISchedule schedule;
-	private ExponentialDistribution decolonizationDistribution;
-	private ExponentialDistribution clinicalDetectionDistribution;
-
-	private ISchedulableAction clinicalDetectionAction;
-
-	public static PrintWriter decolWriter;
-	public static PrintWriter clinicalWriter;
-	public static PrintWriter verificationWriter; // NEW: verification log
-	public static int clinicalOutputNum;
-	public static int surveillanceOutputNum; // NEW: count surveillance detections
-
-	static {
-		try {
-			if (!FacilityEpiSim.isBatchRun) {
-				decolWriter = new PrintWriter("decolonization.txt");
-				decolWriter.println("time,decolonized_patient_id");
-				clinicalWriter = new PrintWriter("clinicalDetection.txt");
-				clinicalWriter.println("Time,DetectedPatientID,DetectionCount");
-				verificationWriter = new PrintWriter("detection_verification.txt");
-				verificationWriter.println("time,patient_id,source,colonized,detection_count");
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
+	private final RunContext context;
+	private EventScheduler schedule;
+	// Event time means; samples are drawn from the patient's detection and decolonization streams
+	private double meanTimeToDecolonization = 0.0;
+	private double meanTimeToClinicalDetection = 0.0;
+
+	private ScheduledEvent clinicalDetectionAction;
+	private final EventRegistry pendingEvents = new EventRegistry();
 
-	public PersonDisease(Disease disease, Person person, ISchedule schedule) {
+	// State last recorded in the facility outbreak's running tallies (see FacilityOutbreak.tally)
+	FacilityOutbreak talliedOutbreak;
+	boolean talliedColonized;
+	boolean talliedIsolated;
+	double talliedContribution;
+	int samplerSlot = -1;
+
+	public PersonDisease(Disease disease, Person person) {
 		this.disease = disease;
 		this.person = person;
-		this.schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
+		this.context = person.getRunContext();
+		this.schedule = context.getScheduler();
 
 		initializeEventDistributions();
 
@@ -63,6 +58,20 @@ public class PersonDisease {
 		}
 	}
 
+	@Override
+	public void handleEvent(int eventType) {
+		switch (eventType) {
+		case EVENT_DECOLONIZATION:
+			doDecolonization();
+			break;
+		case EVENT_CLINICAL_DETECTION:
+			doClinicalDetection();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown PersonDisease event type " + eventType);
+		}
+	}
+
 	public void doDecolonization() {
 		double currentTime = schedule.getTickCount();
 		if (this.person.isNoMoreEvents()) {
@@ -71,12 +80,14 @@ public class PersonDisease {
 
 		if (colonized) {
 			colonized = false;
-			if (!FacilityEpiSim.isBatchRun && decolWriter != null) {
+			person.stateChanged();
+			PrintWriter decolWriter = context.getDecolonizationWriter();
+			if (decolWriter != null) {
 				decolWriter.printf("%.2f,%d%n", currentTime, person.hashCode());
 				decolWriter.flush();
 			}
 			if (clinicalDetectionAction != null) {
-				schedule.removeAction(clinicalDetectionAction);
+				schedule.cancel(clinicalDetectionAction);
 				clinicalDetectionAction = null;
 			}
 			person.updateAllTransmissionRateContributions();
@@ -84,13 +95,13 @@ public class PersonDisease {
 	}
 
 	public void startDecolonizationTimer() {
-		if (decolonizationDistribution == null) {
+		if (meanTimeToDecolonization <= 0.0) {
 			System.err.println("Decolonization distribution is not initialized.");
 			return;
 		}
-		double timeToDecolonization = decolonizationDistribution.sample();
-		ScheduleParameters params = ScheduleParameters.createOneTime(schedule.getTickCount() + timeToDecolonization);
-		schedule.schedule(params, this, "doDecolonization");
+		double timeToDecolonization = Samplers.exponential(person.getRandomStreams().getDecolonization(), meanTimeToDecolonization);
+		pendingEvents.track(
+				schedule.schedule(schedule.getTickCount() + timeToDecolonization, this, EVENT_DECOLONIZATION));
 	}
 
 	public void doClinicalDetection() {
@@ -103,18 +114,21 @@ public class PersonDisease {
 		detected = true;
 		detectedBySurveillance = false; // mark as clinical
 		clinicallyDetectedDuringCurrentStay = true;
+		person.stateChanged();
 
 		incrementDetectionCount();
 
-		if (!FacilityEpiSim.isBatchRun && clinicalWriter != null) {
+		PrintWriter clinicalWriter = context.getClinicalWriter();
+		if (clinicalWriter != null) {
 			clinicalWriter.printf("%.2f,%d,%d%n", currentTime,
 					person.hashCode(), getDetectionCount());
 			clinicalWriter.flush();
 		}
-		clinicalOutputNum++;
+		context.incrementClinicalDetections();
 
 		// Verification log for detection source
-		if (!FacilityEpiSim.isBatchRun && verificationWriter != null) {
+		PrintWriter verificationWriter = context.getVerificationWriter();
+		if (verificationWriter != null) {
 			verificationWriter.printf("%.2f,%d,CLINICAL,%b,%d%n",
 					currentTime, person.hashCode(), colonized, getDetectionCount());
 			verificationWriter.flush();
@@ -125,7 +139,7 @@ public class PersonDisease {
 			person.updateAllTransmissionRateContributions();
 		}
 		if (clinicalDetectionAction != null) {
-			schedule.removeAction(clinicalDetectionAction);
+			schedule.cancel(clinicalDetectionAction);
 			clinicalDetectionAction = null;
 		}
 	}
@@ -139,10 +153,12 @@ public class PersonDisease {
 			return; // already detected by some source
 		detected = true;
 		detectedBySurveillance = true;
-		surveillanceOutputNum++;
+		person.stateChanged();
+		context.incrementSurveillanceDetections();
 		double currentTime = schedule.getTickCount();
 		// Verification log
-		if (!FacilityEpiSim.isBatchRun && verificationWriter != null) {
+		PrintWriter verificationWriter = context.getVerificationWriter();
+		if (verificationWriter != null) {
 			verificationWriter.printf(
 					"%.2f,%d,SURVEILLANCE,%b,%d%n", currentTime,
 					person.hashCode(), colonized, getDetectionCount());
@@ -153,7 +169,7 @@ public class PersonDisease {
 			person.updateAllTransmissionRateContributions();
 		}
 		if (clinicalDetectionAction != null) {
-			schedule.removeAction(clinicalDetectionAction);
+			schedule.cancel(clinicalDetectionAction);
 			clinicalDetectionAction = null;
 		}
 	}
@@ -163,38 +179,67 @@ public class PersonDisease {
 			return;
 		}
 		if (clinicalDetectionAction != null) {
-			schedule.removeAction(clinicalDetectionAction);
+			schedule.cancel(clinicalDetectionAction);
 			clinicalDetectionAction = null;
 		}
 
-		double meanTimeToClinicalDetection = disease
-				.getMeanTimeToClinicalDetection(person.getCurrentFacility().getType());
-		double timeToDetection = clinicalDetectionDistribution.sample();
+		double timeToDetection = Samplers.exponential(person.getRandomStreams().getDetection(), meanTimeToClinicalDetection);
 
-		ScheduleParameters params = ScheduleParameters.createOneTime(schedule.getTickCount() + timeToDetection);
-		clinicalDetectionAction = schedule.schedule(params, this, "doClinicalDetection");
+		clinicalDetectionAction = pendingEvents.track(schedule.schedule(schedule.getTickCount() + timeToDetection,
+				this, EVENT_CLINICAL_DETECTION));
 	}
 
 	public void resetClinicalDetectionEvent() {
 	    	System.out.println("Resetting clinical detection event for person: " + person.hashCode() );
 		detected = false;
 		clinicallyDetectedDuringCurrentStay = false;
+		person.stateChanged();
 
 		// Clear any pending detection first
 		if (clinicalDetectionAction != null) {
-			schedule.removeAction(clinicalDetectionAction);
+			schedule.cancel(clinicalDetectionAction);
 			clinicalDetectionAction = null;
 		}
 
-		if (clinicalDetectionDistribution != null) {
-			double timeToDetection = clinicalDetectionDistribution.sample();
-			ScheduleParameters params = ScheduleParameters.createOneTime(schedule.getTickCount() + timeToDetection);
-			clinicalDetectionAction = schedule.schedule(params, this, "doClinicalDetection");
+		if (meanTimeToClinicalDetection > 0.0) {
+			double timeToDetection = Samplers.exponential(person.getRandomStreams().getDetection(), meanTimeToClinicalDetection);
+			clinicalDetectionAction = pendingEvents.track(schedule.schedule(schedule.getTickCount() + timeToDetection,
+					this, EVENT_CLINICAL_DETECTION));
 		}
 	}
 
+	/**
+	 * Cancels all pending decolonization and clinical detection events.
+	 */
+	public void cancelAllEvents() {
+		pendingEvents.cancelAll(schedule);
+		clinicalDetectionAction = null;
+	}
+
+	/**
+	 * Clears the state of a discharged patient's disease so the patient can
+	 * be recycled by a {@link agents.PersonPool}. The disease and run are kept.
+	 */
+	public void reset() {
+		cancelAllEvents();
+		colonized = false;
+		detected = false;
+		detectedBySurveillance = false;
+		transmissionRateContribution = 1.0;
+		clinicallyDetectedDuringCurrentStay = false;
+		initialInfection = false;
+		detectionCount = 0;
+		talliedOutbreak = null;
+		talliedColonized = false;
+		talliedIsolated = false;
+		talliedContribution = 0.0;
+		samplerSlot = -1;
+		initializeEventDistributions();
+	}
+
 	public void colonize() {
 		colonized = true;
+		person.stateChanged();
 		startDecolonizationTimer();
 		person.updateAllTransmissionRateContributions();
 	}
@@ -217,15 +262,16 @@ public class PersonDisease {
 		if (person.isIsolated())
 			score *= person.getCurrentFacility().getBetaIsolationReduction();
 		transmissionRateContribution = score;
+		if (talliedOutbreak != null) {
+			talliedOutbreak.updatePatient(this);
+		}
 	}
 
 	public void initializeEventDistributions() {
 		if (disease != null && person != null && person.getCurrentFacility() != null) {
-			double meanTimeToClinicalDetection = disease
+			meanTimeToClinicalDetection = disease
 					.getMeanTimeToClinicalDetection(person.getCurrentFacility().getType());
-
-			decolonizationDistribution = new ExponentialDistribution(disease.getAvgDecolonizationTime());
-			clinicalDetectionDistribution = new ExponentialDistribution(meanTimeToClinicalDetection);
+			meanTimeToDecolonization = disease.getAvgDecolonizationTime();
 		} else {
 			System.err.println("Cannot initialize distributions: disease, person, or current facility is null.");
 		}
@@ -235,6 +281,10 @@ public class PersonDisease {
 		return colonized;
 	}
 
+	public Person getPerson() {
+		return person;
+	}
+
 	public void setPerson(Person person) {
 		this.person = person;
 	}
@@ -261,6 +311,7 @@ public class PersonDisease {
 
 	public void setDetected(boolean detected) {
 		this.detected = detected;
+		person.stateChanged();
 	}
 
 	public boolean isDetectedBySurveillance() {
@@ -280,34 +331,4 @@ public class PersonDisease {
 	    // TODO Auto-generated method stub
 	    return this.person.hashCode();
 		    }
-
-	public static void closeWriters() {
-		if (decolWriter != null) {
-			try {
-				decolWriter.flush();
-				decolWriter.close();
-			} catch (Exception e) {
-				// ignore errors
-			}
-			decolWriter = null;
-		}
-		if (clinicalWriter != null) {
-			try {
-				clinicalWriter.flush();
-				clinicalWriter.close();
-			} catch (Exception e) {
-				// ignore errors
-			}
-			clinicalWriter = null;
-		}
-		if (verificationWriter != null) {
-			try {
-				verificationWriter.flush();
-				verificationWriter.close();
-			} catch (Exception e) {
-				// ignore errors
-			}
-			verificationWriter = null;
-		}
-	}
 }
@@ -0,0 +1,60 @@
+package engine;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Common event dispatch for {@link EventScheduler} implementations.
+ * <p>
+ * Delivers each event to its target and then runs any tasks deferred with
+ * {@link #runAfterCurrentEvent(Runnable)} during the handler, so that work
+ * requested several times by one event is done once when it finishes.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public abstract class AbstractEventScheduler implements EventScheduler, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private boolean dispatching = false;
+	private Runnable[] deferred = new Runnable[4];
+	private int deferredCount = 0;
+
+	/**
+	 * Delivers an event to its target, then runs the tasks it deferred.
+	 *
+	 * @param event the event being fired
+	 */
+	protected void dispatch(ScheduledEvent event) {
+		dispatching = true;
+		try {
+			event.target.handleEvent(event.eventType);
+		} finally {
+			dispatching = false;
+			runDeferred();
+		}
+	}
+
+	@Override
+	public void runAfterCurrentEvent(Runnable task) {
+		if (!dispatching) {
+			task.run();
+			return;
+		}
+		if (deferredCount == deferred.length) {
+			deferred = Arrays.copyOf(deferred, deferredCount * 2);
+		}
+		deferred[deferredCount++] = task;
+	}
+
+	private void runDeferred() {
+		// Tasks run outside dispatch, so anything they trigger happens immediately.
+		for (int i = 0; i < deferredCount; i++) {
+			Runnable task = deferred[i];
+			deferred[i] = null;
+			task.run();
+		}
+		deferredCount = 0;
+	}
+}
@@ -0,0 +1,79 @@
+package engine;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Tracks the outstanding events scheduled by one agent so they can be
+ * cancelled together, e.g. when a patient is discharged.
+ * <p>
+ * Fired and cancelled events are pruned whenever a new event is tracked, so
+ * the registry only ever holds the handful of events an agent has pending.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class EventRegistry implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private ScheduledEvent[] events = new ScheduledEvent[4];
+	private int count = 0;
+
+	/**
+	 * Records a newly scheduled event.
+	 *
+	 * @param event the handle returned by the scheduler
+	 * @return the same handle, for chaining
+	 */
+	public ScheduledEvent track(ScheduledEvent event) {
+		prune();
+		if (count == events.length) {
+			events = Arrays.copyOf(events, count * 2);
+		}
+		events[count++] = event;
+		return event;
+	}
+
+	/**
+	 * Cancels every tracked event that is still pending.
+	 *
+	 * @param scheduler the scheduler the events were scheduled on
+	 * @return the number of events cancelled
+	 */
+	public int cancelAll(EventScheduler scheduler) {
+		int cancelled = 0;
+		for (int i = 0; i < count; i++) {
+			if (scheduler.cancel(events[i])) {
+				cancelled++;
+			}
+			events[i] = null;
+		}
+		count = 0;
+		return cancelled;
+	}
+
+	/**
+	 * @return the number of tracked events that are still pending
+	 */
+	public int getPendingCount() {
+		int pending = 0;
+		for (int i = 0; i < count; i++) {
+			if (events[i].isPending()) {
+				pending++;
+			}
+		}
+		return pending;
+	}
+
+	private void prune() {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (events[i].isPending()) {
+				events[kept++] = events[i];
+			}
+		}
+		Arrays.fill(events, kept, count, null);
+		count = kept;
+	}
+}
@@ -0,0 +1,73 @@
+package engine;
+
+/**
+ * Discrete-event schedule used by the model classes.
+ * <p>
+ * Abstracts over the engine that orders and dispatches events, so the model
+ * can run either on the Repast Simphony schedule ({@link RepastScheduler}) or
+ * on the built-in event heap ({@link HeapScheduler}) without Repast.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public interface EventScheduler {
+
+	/**
+	 * @return the current simulation time in ticks (days)
+	 */
+	double getTickCount();
+
+	/**
+	 * Schedules a one-time event.
+	 *
+	 * @param time      the absolute tick at which the event fires
+	 * @param target    the object receiving the event
+	 * @param eventType the event code passed to {@link EventTarget#handleEvent(int)}
+	 * @return a handle that can be used to cancel the event
+	 */
+	ScheduledEvent schedule(double time, EventTarget target, int eventType);
+
+	/**
+	 * Schedules an event that fires at {@code start} and then every {@code interval} ticks.
+	 *
+	 * @param start     the absolute tick of the first firing
+	 * @param interval  the ticks between firings
+	 * @param target    the object receiving the event
+	 * @param eventType the event code passed to {@link EventTarget#handleEvent(int)}
+	 * @return a handle that can be used to cancel the event
+	 */
+	ScheduledEvent scheduleRepeating(double start, double interval, EventTarget target, int eventType);
+
+	/**
+	 * Moves a pending event to a new firing time, keeping its handle. Used to
+	 * rescale a waiting time in place when a rate changes.
+	 *
+	 * @param event the handle of a pending one-time event
+	 * @param time  the new absolute firing tick
+	 */
+	void reschedule(ScheduledEvent event, double time);
+
+	/**
+	 * Cancels a pending event. Cancelling an event that has already fired or
+	 * been cancelled has no effect.
+	 *
+	 * @param event the handle returned when the event was scheduled
+	 * @return true if the event was pending and is now cancelled
+	 */
+	boolean cancel(ScheduledEvent event);
+
+	/**
+	 * Defers a task until the event currently being handled has finished, so
+	 * that a recomputation requested several times by one event runs once.
+	 * Outside event handling (e.g. during model setup) the task runs at once.
+	 *
+	 * @param task the work to run after the current event
+	 */
+	void runAfterCurrentEvent(Runnable task);
+
+	/**
+	 * Stops the run once the current event has been handled.
+	 */
+	void endRun();
+}
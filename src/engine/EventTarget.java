@@ -0,0 +1,23 @@
+package engine;
+
+/**
+ * A model object that receives scheduled events.
+ * <p>
+ * Events are identified by an integer code defined by the target class, and
+ * are delivered through a direct call to {@link #handleEvent(int)} rather than
+ * by reflective method lookup.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ * @see EventScheduler
+ */
+public interface EventTarget {
+
+	/**
+	 * Handles an event scheduled for this target.
+	 *
+	 * @param eventType the event code passed when the event was scheduled
+	 */
+	void handleEvent(int eventType);
+}
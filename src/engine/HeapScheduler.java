@@ -0,0 +1,227 @@
+package engine;
+
+/**
+ * Built-in discrete-event engine backed by a binary heap.
+ * <p>
+ * Events are ordered on their primitive {@code double} firing time, with ties
+ * broken in scheduling order, and are dispatched by calling
+ * {@link EventTarget#handleEvent(int)} directly. Cancelled events are removed
+ * from the heap immediately. The engine has no dependency on Repast and is
+ * intended for headless runs.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class HeapScheduler extends AbstractEventScheduler {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Heap keys are kept in primitive arrays parallel to the event handles.
+	private double[] times = new double[INITIAL_CAPACITY];
+	private long[] sequences = new long[INITIAL_CAPACITY];
+	private ScheduledEvent[] events = new ScheduledEvent[INITIAL_CAPACITY];
+	private int size = 0;
+	private long nextSequence = 0;
+	private double tickCount = 0.0;
+	private boolean ended = false;
+
+	@Override
+	public double getTickCount() {
+		return tickCount;
+	}
+
+	@Override
+	public ScheduledEvent schedule(double time, EventTarget target, int eventType) {
+		ScheduledEvent event = new ScheduledEvent(time, target, eventType, 0.0);
+		insert(event);
+		return event;
+	}
+
+	@Override
+	public ScheduledEvent scheduleRepeating(double start, double interval, EventTarget target, int eventType) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("interval " + interval + " must be positive");
+		}
+		ScheduledEvent event = new ScheduledEvent(start, target, eventType, interval);
+		insert(event);
+		return event;
+	}
+
+	@Override
+	public void reschedule(ScheduledEvent event, double time) {
+		if (!event.pending || event.heapIndex < 0) {
+			throw new IllegalStateException("Cannot reschedule an event that is not pending");
+		}
+		if (time < tickCount) {
+			throw new IllegalArgumentException("Cannot reschedule event to " + time
+					+ " before current tick " + tickCount);
+		}
+		int i = event.heapIndex;
+		event.time = time;
+		times[i] = time;
+		siftDown(i);
+		siftUp(event.heapIndex);
+	}
+
+	@Override
+	public boolean cancel(ScheduledEvent event) {
+		if (event == null || !event.pending) {
+			return false;
+		}
+		event.pending = false;
+		int i = event.heapIndex;
+		if (i >= 0) {
+			removeAt(i);
+		}
+		return true;
+	}
+
+	@Override
+	public void endRun() {
+		ended = true;
+	}
+
+	/**
+	 * Dispatches events in time order until the heap is empty or
+	 * {@link #endRun()} is called.
+	 */
+	public void run() {
+		runUntil(Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Dispatches events whose firing time is strictly before {@code endTime},
+	 * stopping early if the heap empties or {@link #endRun()} is called.
+	 *
+	 * @param endTime the exclusive upper bound on event times to dispatch
+	 */
+	public void runUntil(double endTime) {
+		while (!ended && size > 0 && times[0] < endTime) {
+			step();
+		}
+	}
+
+	/**
+	 * Dispatches the earliest pending event.
+	 *
+	 * @return false if there was no event to dispatch
+	 */
+	public boolean step() {
+		if (size == 0) {
+			return false;
+		}
+		ScheduledEvent event = events[0];
+		removeAt(0);
+		tickCount = event.time;
+		if (event.interval > 0) {
+			event.time += event.interval;
+			insert(event);
+		} else {
+			event.pending = false;
+		}
+		dispatch(event);
+		return true;
+	}
+
+	/**
+	 * @return the event that {@link #step()} would dispatch next, or null if
+	 *         none is pending
+	 */
+	public ScheduledEvent getNextEvent() {
+		return size == 0 ? null : events[0];
+	}
+
+	/**
+	 * @return true once {@link #endRun()} has been called
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+
+	/**
+	 * @return the number of pending events
+	 */
+	public int getPendingCount() {
+		return size;
+	}
+
+	private void insert(ScheduledEvent event) {
+		if (event.time < tickCount) {
+			throw new IllegalArgumentException("Cannot schedule event at " + event.time
+					+ " before current tick " + tickCount);
+		}
+		if (size == events.length) {
+			int capacity = size * 2;
+			times = java.util.Arrays.copyOf(times, capacity);
+			sequences = java.util.Arrays.copyOf(sequences, capacity);
+			events = java.util.Arrays.copyOf(events, capacity);
+		}
+		event.pending = true;
+		event.sequence = nextSequence++;
+		set(size, event);
+		siftUp(size++);
+	}
+
+	private void removeAt(int i) {
+		ScheduledEvent removed = events[i];
+		removed.heapIndex = -1;
+		int last = --size;
+		if (i != last) {
+			set(i, events[last]);
+			events[last] = null;
+			siftDown(i);
+			siftUp(i);
+		} else {
+			events[last] = null;
+		}
+	}
+
+	private void set(int i, ScheduledEvent event) {
+		events[i] = event;
+		times[i] = event.time;
+		sequences[i] = event.sequence;
+		event.heapIndex = i;
+	}
+
+	private boolean less(int a, int b) {
+		return times[a] < times[b] || (times[a] == times[b] && sequences[a] < sequences[b]);
+	}
+
+	private void swap(int a, int b) {
+		ScheduledEvent ea = events[a];
+		set(a, events[b]);
+		set(b, ea);
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!less(i, parent)) {
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= size) {
+				break;
+			}
+			int smallest = left;
+			int right = left + 1;
+			if (right < size && less(right, left)) {
+				smallest = right;
+			}
+			if (!less(smallest, i)) {
+				break;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+}
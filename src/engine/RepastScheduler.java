@@ -0,0 +1,99 @@
+package engine;
+
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ISchedulableAction;
+import repast.simphony.engine.schedule.ISchedule;
+import repast.simphony.engine.schedule.ScheduleParameters;
+
+/**
+ * {@link EventScheduler} backed by the Repast Simphony schedule.
+ * <p>
+ * Each event is registered as an {@code IAction} that calls the target's
+ * {@link EventTarget#handleEvent(int)} directly, so no reflective method
+ * lookup is involved even when running under Repast.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class RepastScheduler extends AbstractEventScheduler {
+	private static final long serialVersionUID = 1L;
+
+	// Not serializable; burn-in snapshots require a HeapScheduler
+	private final transient ISchedule schedule;
+
+	/**
+	 * Wraps a Repast schedule.
+	 *
+	 * @param schedule the current Repast schedule
+	 */
+	public RepastScheduler(ISchedule schedule) {
+		this.schedule = schedule;
+	}
+
+	@Override
+	public double getTickCount() {
+		return schedule.getTickCount();
+	}
+
+	@Override
+	public ScheduledEvent schedule(double time, EventTarget target, int eventType) {
+		ScheduledEvent event = new ScheduledEvent(time, target, eventType, 0.0);
+		scheduleOneTime(event);
+		return event;
+	}
+
+	/**
+	 * Repast actions cannot be moved, so the backing action is replaced while
+	 * the caller keeps the same handle.
+	 */
+	@Override
+	public void reschedule(ScheduledEvent event, double time) {
+		if (!event.pending) {
+			throw new IllegalStateException("Cannot reschedule an event that is not pending");
+		}
+		schedule.removeAction((ISchedulableAction) event.action);
+		event.time = time;
+		scheduleOneTime(event);
+	}
+
+	private void scheduleOneTime(ScheduledEvent event) {
+		event.action = schedule.schedule(ScheduleParameters.createOneTime(event.time), () -> {
+			event.pending = false;
+			dispatch(event);
+		});
+	}
+
+	@Override
+	public ScheduledEvent scheduleRepeating(double start, double interval, EventTarget target, int eventType) {
+		ScheduledEvent event = new ScheduledEvent(start, target, eventType, interval);
+		event.action = schedule.schedule(ScheduleParameters.createRepeating(start, interval), () -> {
+			event.time = schedule.getTickCount() + interval;
+			dispatch(event);
+		});
+		return event;
+	}
+
+	@Override
+	public boolean cancel(ScheduledEvent event) {
+		if (event == null || !event.pending) {
+			return false;
+		}
+		event.pending = false;
+		schedule.removeAction((ISchedulableAction) event.action);
+		return true;
+	}
+
+	@Override
+	public void endRun() {
+		schedule.setFinishing(true);
+		RunEnvironment.getInstance().endRun();
+	}
+
+	/**
+	 * @return the wrapped Repast schedule
+	 */
+	public ISchedule getSchedule() {
+		return schedule;
+	}
+}
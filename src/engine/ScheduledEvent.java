@@ -0,0 +1,62 @@
+package engine;
+
+import java.io.Serializable;
+
+/**
+ * Handle for a pending event returned by an {@link EventScheduler}.
+ * <p>
+ * Holds the firing time, the target and its event code. The handle can be
+ * passed back to the scheduler to cancel the event.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class ScheduledEvent implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	double time;
+	final EventTarget target;
+	final int eventType;
+	final double interval;
+	long sequence;
+	int heapIndex = -1;
+	boolean pending = true;
+	/** Engine-specific handle (e.g. the Repast action backing this event). */
+	transient Object action;
+
+	ScheduledEvent(double time, EventTarget target, int eventType, double interval) {
+		this.time = time;
+		this.target = target;
+		this.eventType = eventType;
+		this.interval = interval;
+	}
+
+	/**
+	 * @return the tick at which the event will next fire
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the event code delivered to the target
+	 */
+	public int getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return the object that will receive the event
+	 */
+	public EventTarget getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return true if the event has neither fired nor been cancelled
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+}
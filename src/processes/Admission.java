@@ -1,23 +1,24 @@
 package processes;
 
 import agentcontainers.Facility;
-import repast.simphony.engine.schedule.ScheduleParameters;
 
 public class Admission extends Process {
+	private static final long serialVersionUID = 1L;
 
 	private Facility facility;
 	
 
 	public Admission(double intra_event_time, Facility facility) {
-		super(intra_event_time);
+		super(intra_event_time, facility.getRunContext().getScheduler(),
+				facility.getRunContext().getRandomStreams().getAdmissions());
 		this.facility = facility;  // Associate admission with a facility
 	}
 
 	@Override
 	public void start() {
 		// Schedule the first admission event
-		double nextAdmissionTime = distro.sample();
-		schedule.schedule(ScheduleParameters.createOneTime(schedule.getTickCount() + nextAdmissionTime), this, "fire");
+		double nextAdmissionTime = sampleIntraEventTime();
+		nextAction = schedule.schedule(schedule.getTickCount() + nextAdmissionTime, this, EVENT_FIRE);
 	}
 
 	@Override
@@ -27,7 +28,7 @@ public class Admission extends Process {
 
 		//Reschedule the next admission
 		//double nextAdmissionTime = distro.sample();
-		//schedule.schedule(ScheduleParameters.createOneTime(schedule.getTickCount() + nextAdmissionTime), this, "fire");
+		//schedule.schedule(schedule.getTickCount() + nextAdmissionTime, this, EVENT_FIRE);
 		
 		// Oct 25, 2024 WRR: Do it like this:
 		start();
@@ -1,31 +1,53 @@
 package processes;
 
-import org.apache.commons.math3.distribution.ExponentialDistribution;
-import repast.simphony.engine.schedule.ISchedulableAction;
-import repast.simphony.engine.schedule.ISchedule;
+import java.io.Serializable;
 
-abstract class Process {
+import org.apache.commons.math3.random.RandomGenerator;
+import engine.EventScheduler;
+import engine.EventTarget;
+import engine.ScheduledEvent;
+import utils.Samplers;
 
-    protected ISchedule schedule;
+abstract class Process implements EventTarget, Serializable {
+	private static final long serialVersionUID = 1L;
+
+    static final int EVENT_FIRE = 1;
+
+    protected EventScheduler schedule;
     protected double meanIntraEventTime;
-    protected ExponentialDistribution distro;
-    protected ISchedulableAction nextAction;
+    protected RandomGenerator random;
+    protected ScheduledEvent nextAction;
 
-    Process(double intra_event_time) {
+    Process(double intra_event_time, EventScheduler schedule, RandomGenerator random) {
+        this.random = random;
         if (intra_event_time > 0) {
-            schedule = repast.simphony.engine.environment.RunEnvironment.getInstance().getCurrentSchedule();
+            this.schedule = schedule;
             meanIntraEventTime = intra_event_time;
-            distro = new ExponentialDistribution(intra_event_time);
         }
     }
 
+    /**
+     * @return an exponential waiting time with the process's mean intra-event time
+     */
+    protected double sampleIntraEventTime() {
+        return Samplers.exponential(random, meanIntraEventTime);
+    }
+
     abstract void start();
     abstract void fire();
     abstract void stop();
 
+    @Override
+    public void handleEvent(int eventType) {
+        if (eventType != EVENT_FIRE) {
+            throw new IllegalArgumentException("Unknown process event type " + eventType);
+        }
+        fire();
+    }
+
     public double getNextEventTime() {
 	return 0;
-	// Nov 1, 2024 WRR: This should either return the time the ISchedulableAction is going to fire,
+	// Nov 1, 2024 WRR: This should either return the time the ScheduledEvent is going to fire,
 	// or calculate the next time that it should fire (but that should be done in Start?).
         //return nextAction.nextTime();
     }
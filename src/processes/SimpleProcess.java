@@ -1,21 +1,23 @@
 package processes;
 
-import repast.simphony.engine.schedule.ScheduleParameters;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import engine.EventScheduler;
 
 class SimpleProcess extends Process {
+    private static final long serialVersionUID = 1L;
     private boolean stop = false;
 
-    SimpleProcess(double intra_event_time) {
-        super(intra_event_time);
+    SimpleProcess(double intra_event_time, EventScheduler schedule, RandomGenerator random) {
+        super(intra_event_time, schedule, random);
     }
 
 
     public void start() {
         this.stop = false;
         double currTime = schedule.getTickCount();
-        double elapse = distro.sample();
-        ScheduleParameters params = ScheduleParameters.createOneTime(currTime + elapse);
-        nextAction = schedule.schedule(params, this, "fire");
+        double elapse = sampleIntraEventTime();
+        nextAction = schedule.schedule(currTime + elapse, this, EVENT_FIRE);
     }
 
 
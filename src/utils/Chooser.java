@@ -1,13 +1,16 @@
 package utils;
 
-import repast.simphony.random.RandomHelper;
 import java.util.List;
 
+import org.apache.commons.math3.random.RandomGenerator;
+
 /**
  * Utility class for random selection from lists based on probabilities.
  * <p>
  * Provides static methods for randomly choosing from a set of options,
- * either with uniform probability or weighted by density values.
+ * either with uniform probability or weighted by density values. Every
+ * method draws from a caller-supplied stream, normally one of the run's
+ * {@link RandomStreams}, so choices are reproducible from the run's seed.
  * </p>
  *
  * @author [Project Team]
@@ -23,12 +26,13 @@ public class Chooser {
 	 * at that index in the options list.
 	 * </p>
 	 *
+	 * @param random  the random stream to draw from
 	 * @param options the list of options to choose from
 	 * @param density the probability density for each option
 	 * @return the randomly selected option
 	 */
-	public static Object choose(List<?> options, List<? extends Number> density) {
-		double testValue = RandomHelper.getUniform().nextDoubleFromTo(0.0, 1.0);
+	public static Object choose(RandomGenerator random, List<?> options, List<? extends Number> density) {
+		double testValue = random.nextDouble();
 
 		double cumulative = 0;
 		int step = 0;
@@ -49,39 +53,42 @@ public class Chooser {
 	/**
 	 * Randomly selects one option from a list with uniform probability.
 	 *
+	 * @param random  the random stream to draw from
 	 * @param options the list of options to choose from
 	 * @return a randomly selected option
 	 */
-	public static Object chooseOne(List<?> options) {
-		int index = RandomHelper.getUniform().nextIntFromTo(0, options.size() - 1);
+	public static Object chooseOne(RandomGenerator random, List<?> options) {
+		int index = random.nextInt(options.size());
 		return options.get(index);
 	}
 
 	/**
 	 * Randomly returns true or false with equal probability (50/50).
 	 *
+	 * @param random the random stream to draw from
 	 * @return a random boolean value
 	 */
-	public static boolean coinFlip() {
+	public static boolean coinFlip(RandomGenerator random) {
 		List<Boolean> options = java.util.Arrays.asList(true, false);
-		Object choice = chooseOne(options);
+		Object choice = chooseOne(random, options);
 		return (Boolean) choice;
 	}
 
 	/**
 	 * Returns true with probability {@code test}, false with probability {@code 1.0 - test}.
 	 *
-	 * @param test the probability of returning true (must be in range [0, 1])
+	 * @param random the random stream to draw from
+	 * @param test   the probability of returning true (must be in range [0, 1])
 	 * @return true with probability test, false otherwise
 	 * @throws IllegalArgumentException if test is outside the range [0, 1]
 	 */
-	public static boolean randomTrue(Double test) {
+	public static boolean randomTrue(RandomGenerator random, Double test) {
 		if (test < 0 || test > 1) {
 			throw new IllegalArgumentException("value " + test + " out of bounds [0,1]");
 		}
 		List<Boolean> options = java.util.Arrays.asList(true, false);
 		List<Double> density = java.util.Arrays.asList(test, 1.0 - test);
-		Object choice = choose(options, density);
+		Object choice = choose(random, options, density);
 		return (Boolean) choice;
 	}
 
@@ -1,49 +1,64 @@
 package utils;
 
-import org.apache.commons.math3.distribution.GammaDistribution;
-import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.math3.random.Well19937c;
-
+import java.io.Serializable;
 
-public class MixedGamma extends GammaDistribution {
+import org.apache.commons.math3.random.RandomGenerator;
 
-    private static final long serialVersionUID = 1L;
+/**
+ * Two-component gamma mixture used for the length of stay distribution.
+ * <p>
+ * With probability {@code prob1} a sample is drawn from Gamma(shape1, scale1),
+ * otherwise from Gamma(shape2, scale2). Sampling is allocation-free and draws
+ * from a caller-supplied random stream via {@link Samplers#gamma}.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class MixedGamma implements Serializable {
+	private static final long serialVersionUID = 1L;
 
     private final double prob1;
-    private final GammaDistribution comp1;
-    private final GammaDistribution comp2;
-
-    
-    public MixedGamma(double shape1, double scale1,
-                      double shape2, double scale2,
-                      double prob1) {
-        this(new Well19937c(), shape1, scale1, shape2, scale2, prob1);
-    }
+    private final double shape1;
+    private final double scale1;
+    private final double shape2;
+    private final double scale2;
+    private final RandomGenerator random;
 
     public MixedGamma(RandomGenerator rng,
                       double shape1, double scale1,
                       double shape2, double scale2,
                       double prob1) {
-        super(rng, Math.max(1e-12, shape1), Math.max(1e-12, scale1));
         if (prob1 < 0.0 || prob1 > 1.0) {
             throw new IllegalArgumentException("prob1 must be in [0, 1]");
         }
+        this.random = rng;
         this.prob1 = prob1;
-        this.comp1 = new GammaDistribution(rng, Math.max(1e-12, shape1), Math.max(1e-12, scale1));
-        this.comp2 = new GammaDistribution(rng, Math.max(1e-12, shape2), Math.max(1e-12, scale2));
+        this.shape1 = Math.max(1e-12, shape1);
+        this.scale1 = Math.max(1e-12, scale1);
+        this.shape2 = Math.max(1e-12, shape2);
+        this.scale2 = Math.max(1e-12, scale2);
     }
 
-    @Override
     public double getNumericalMean() {
-        return prob1 * comp1.getNumericalMean() + (1.0 - prob1) * comp2.getNumericalMean();
+        return prob1 * shape1 * scale1 + (1.0 - prob1) * shape2 * scale2;
     }
 
-    @Override
     public double sample() {
-        if (random.nextDouble() < prob1) {
-            return comp1.sample();
+        return sample(random);
+    }
+
+    /**
+     * Draws a sample from the given stream instead of the one supplied at construction.
+     *
+     * @param rng the random stream to draw from
+     * @return a random sample
+     */
+    public double sample(RandomGenerator rng) {
+        if (rng.nextDouble() < prob1) {
+            return Samplers.gamma(rng, shape1, scale1);
         } else {
-            return comp2.sample();
+            return Samplers.gamma(rng, shape2, scale2);
         }
     }
 }
@@ -0,0 +1,182 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The independent random streams of one simulation run, all derived from a
+ * single root seed.
+ * <p>
+ * Each source of randomness in the model draws from its own stream, so a
+ * change that adds or removes draws from one (say, more surveillance tests)
+ * does not shift the numbers seen by the others. The streams are split from
+ * the root generator in a fixed order, so the same root seed always gives the
+ * same streams; new streams must be added at the end of that order to keep
+ * existing ones unchanged.
+ * </p>
+ * <p>
+ * With common random numbers, each patient also gets a set of streams of its
+ * own from {@link #forPatient(long)}, keyed by its arrival index. A patient's
+ * length of stay, importation status, natural history and test outcomes then
+ * no longer depend on how many draws other patients made, so the n-th
+ * patient to arrive is the same patient in every run with the same seed,
+ * whatever the intervention did to the patients before it.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class RandomStreams implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// Separates the seeds of patient streams from the seed of the run's streams
+	private static final long PATIENT_KEY = 0x3c6ef372fe94f82bL;
+	// Separates replication seeds from patient seeds
+	private static final long REPLICATION_KEY = 0xa54ff53a5f1d36f1L;
+	private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(0x6a09e667f3bcc909L);
+
+	private long rootSeed;
+	private final SplitMix64 root;
+	private final SplitMix64 admissions;
+	private final SplitMix64 lengthOfStay;
+	private final SplitMix64 importation;
+	private final SplitMix64 transmission;
+	private final SplitMix64 detection;
+	private final SplitMix64 decolonization;
+	private final SplitMix64 surveillance;
+
+	/**
+	 * @param rootSeed the seed every stream is derived from
+	 */
+	public RandomStreams(long rootSeed) {
+		this.rootSeed = rootSeed;
+		root = new SplitMix64(rootSeed);
+		admissions = root.split();
+		lengthOfStay = root.split();
+		importation = root.split();
+		transmission = root.split();
+		detection = root.split();
+		decolonization = root.split();
+		surveillance = root.split();
+	}
+
+	/**
+	 * Re-derives every stream in place from a new root seed, giving the same
+	 * streams as {@code new RandomStreams(rootSeed)} without allocating. Used
+	 * to re-key a recycled patient's streams.
+	 *
+	 * @param rootSeed the seed every stream is derived from
+	 */
+	public void reseed(long rootSeed) {
+		this.rootSeed = rootSeed;
+		root.setSeed(rootSeed);
+		root.splitInto(admissions);
+		root.splitInto(lengthOfStay);
+		root.splitInto(importation);
+		root.splitInto(transmission);
+		root.splitInto(detection);
+		root.splitInto(decolonization);
+		root.splitInto(surveillance);
+	}
+
+	/**
+	 * Picks a root seed for a run that was not given one, distinct for every
+	 * call even when runs start at the same instant on different threads.
+	 *
+	 * @return the seed
+	 */
+	public static long newRootSeed() {
+		return SEED_UNIQUIFIER.getAndAdd(0x9e3779b97f4a7c15L) ^ System.nanoTime();
+	}
+
+	/**
+	 * Derives the root seed of a replication of a seeded run. The first
+	 * replication keeps the seed, so it reproduces a single run with that
+	 * seed; later ones get a mixed seed rather than {@code seed + k - 1}, so
+	 * sweeps over adjacent seeds do not repeat each other's replications.
+	 *
+	 * @param seed        the run's {@code randomSeed}
+	 * @param replication the replication number, from 1
+	 * @return the replication's seed
+	 */
+	public static long replicationSeed(long seed, int replication) {
+		if (replication < 1) {
+			throw new IllegalArgumentException("replication " + replication + " must be at least 1");
+		}
+		return replication == 1 ? seed : SplitMix64.mix64(seed ^ SplitMix64.mix64(replication + REPLICATION_KEY));
+	}
+
+	/**
+	 * Derives the streams of one patient. Only the length of stay,
+	 * importation, detection, decolonization and surveillance streams of the
+	 * result are meant to be used; admissions and transmission belong to the
+	 * run.
+	 *
+	 * @param arrivalIndex the patient's position in the order of arrival
+	 * @return the patient's streams
+	 */
+	public RandomStreams forPatient(long arrivalIndex) {
+		return new RandomStreams(patientSeed(arrivalIndex));
+	}
+
+	/**
+	 * @param arrivalIndex a patient's position in the order of arrival
+	 * @return the root seed of the patient's streams, for {@link #reseed(long)}
+	 */
+	public long patientSeed(long arrivalIndex) {
+		return SplitMix64.mix64(rootSeed ^ SplitMix64.mix64(arrivalIndex + PATIENT_KEY));
+	}
+
+	public long getRootSeed() {
+		return rootSeed;
+	}
+
+	/**
+	 * @return the stream for times between admissions
+	 */
+	public SplitMix64 getAdmissions() {
+		return admissions;
+	}
+
+	/**
+	 * @return the stream for patients' lengths of stay
+	 */
+	public SplitMix64 getLengthOfStay() {
+		return lengthOfStay;
+	}
+
+	/**
+	 * @return the stream for colonization on admission, including the initial patients
+	 */
+	public SplitMix64 getImportation() {
+		return importation;
+	}
+
+	/**
+	 * @return the stream for transmission event times and the patients involved
+	 */
+	public SplitMix64 getTransmission() {
+		return transmission;
+	}
+
+	/**
+	 * @return the stream for times to clinical detection
+	 */
+	public SplitMix64 getDetection() {
+		return detection;
+	}
+
+	/**
+	 * @return the stream for times to decolonization
+	 */
+	public SplitMix64 getDecolonization() {
+		return decolonization;
+	}
+
+	/**
+	 * @return the stream for the outcomes of admission and midstay surveillance tests
+	 */
+	public SplitMix64 getSurveillance() {
+		return surveillance;
+	}
+}
@@ -0,0 +1,95 @@
+package utils;
+
+import java.io.Serializable;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * Running mean and variance of a stream of values, kept with Welford's
+ * algorithm so no values need to be stored and the variance stays accurate
+ * when the values are large compared to their spread.
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class RunningStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long count = 0;
+	private double mean = 0.0;
+	// Sum of squared deviations from the current mean
+	private double m2 = 0.0;
+
+	/**
+	 * Adds a value to the stream.
+	 *
+	 * @param x the value
+	 */
+	public void add(double x) {
+		count++;
+		double delta = x - mean;
+		mean += delta / count;
+		m2 += delta * (x - mean);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the values, or NaN if there are none
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * @return the sample variance of the values, or NaN if there are fewer than two
+	 */
+	public double getVariance() {
+		return count < 2 ? Double.NaN : m2 / (count - 1);
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return the standard error of the mean, or NaN if there are fewer than two values
+	 */
+	public double getStandardError() {
+		return Math.sqrt(getVariance() / count);
+	}
+
+	/**
+	 * Half-width of the Student-t confidence interval for the mean.
+	 *
+	 * @param confidence the confidence level, e.g. 0.95
+	 * @return the half-width, or NaN if there are fewer than two values
+	 */
+	public double getHalfWidth(double confidence) {
+		if (confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException("confidence " + confidence + " out of bounds (0,1)");
+		}
+		if (count < 2) {
+			return Double.NaN;
+		}
+		double t = new TDistribution(count - 1).inverseCumulativeProbability(0.5 + confidence / 2);
+		return t * getStandardError();
+	}
+
+	/**
+	 * Confidence interval half-width relative to the magnitude of the mean.
+	 *
+	 * @param confidence the confidence level, e.g. 0.95
+	 * @return the relative half-width; 0 if every value is 0, infinite if the
+	 *         mean is 0 but the values vary, NaN if there are fewer than two values
+	 */
+	public double getRelativeHalfWidth(double confidence) {
+		double halfWidth = getHalfWidth(confidence);
+		if (halfWidth == 0) {
+			return 0.0;
+		}
+		return halfWidth / Math.abs(mean);
+	}
+}
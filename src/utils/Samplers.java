@@ -0,0 +1,132 @@
+package utils;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Allocation-free samplers for the distributions used by the model.
+ * <p>
+ * Each method draws from a caller-supplied random stream, so a single stream
+ * can be shared by all patients of a facility or disease instead of creating
+ * a distribution object (with its own generator state) per patient.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public final class Samplers {
+
+	private Samplers() {
+	}
+
+	/**
+	 * Samples an exponential waiting time.
+	 *
+	 * @param rng  the random stream to draw from
+	 * @param mean the mean of the distribution (1/rate)
+	 * @return a random sample
+	 */
+	public static double exponential(RandomGenerator rng, double mean) {
+		// 1 - u is in (0, 1], so the log is finite
+		return -mean * Math.log(1.0 - rng.nextDouble());
+	}
+
+	/**
+	 * Samples a gamma distribution using the method of Marsaglia and Tsang
+	 * (2000), with the usual {@code U^(1/k)} boost for shape below one.
+	 *
+	 * @param rng   the random stream to draw from
+	 * @param shape the shape parameter (k)
+	 * @param scale the scale parameter (theta)
+	 * @return a random sample
+	 */
+	public static double gamma(RandomGenerator rng, double shape, double scale) {
+		if (shape < 1.0) {
+			double u = 1.0 - rng.nextDouble();
+			return gamma(rng, shape + 1.0, scale) * Math.pow(u, 1.0 / shape);
+		}
+		double d = shape - 1.0 / 3.0;
+		double c = 1.0 / Math.sqrt(9.0 * d);
+		while (true) {
+			double x;
+			double v;
+			do {
+				x = rng.nextGaussian();
+				v = 1.0 + c * x;
+			} while (v <= 0.0);
+			v = v * v * v;
+			double u = 1.0 - rng.nextDouble();
+			double x2 = x * x;
+			if (u < 1.0 - 0.0331 * x2 * x2) {
+				return d * v * scale;
+			}
+			if (Math.log(u) < 0.5 * x2 + d * (1.0 - v + Math.log(v))) {
+				return d * v * scale;
+			}
+		}
+	}
+
+	/**
+	 * Samples a Poisson count. Uses multiplication of uniforms for small means
+	 * and the transformed rejection method PTRS of Hörmann (1993) otherwise.
+	 *
+	 * @param rng  the random stream to draw from
+	 * @param mean the mean of the distribution
+	 * @return a random count
+	 */
+	public static long poisson(RandomGenerator rng, double mean) {
+		if (mean <= 0.0) {
+			return 0L;
+		}
+		if (mean < 10.0) {
+			double limit = Math.exp(-mean);
+			long k = 0;
+			double p = rng.nextDouble();
+			while (p > limit) {
+				k++;
+				p *= rng.nextDouble();
+			}
+			return k;
+		}
+		double sqrtMean = Math.sqrt(mean);
+		double logMean = Math.log(mean);
+		double b = 0.931 + 2.53 * sqrtMean;
+		double a = -0.059 + 0.02483 * b;
+		double invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+		double vr = 0.9277 - 3.6224 / (b - 2.0);
+		while (true) {
+			double u = rng.nextDouble() - 0.5;
+			double v = rng.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			long k = (long) Math.floor((2.0 * a / us + b) * u + mean + 0.43);
+			if (us >= 0.07 && v <= vr) {
+				return k;
+			}
+			if (k < 0 || (us < 0.013 && v > us)) {
+				continue;
+			}
+			if (Math.log(v) + Math.log(invAlpha) - Math.log(a / (us * us) + b)
+					<= -mean + k * logMean - logFactorial(k)) {
+				return k;
+			}
+		}
+	}
+
+	private static final double[] SMALL_LOG_FACTORIALS = new double[16];
+	static {
+		for (int i = 1; i < SMALL_LOG_FACTORIALS.length; i++) {
+			SMALL_LOG_FACTORIALS[i] = SMALL_LOG_FACTORIALS[i - 1] + Math.log(i);
+		}
+	}
+
+	private static double logFactorial(long k) {
+		if (k < SMALL_LOG_FACTORIALS.length) {
+			return SMALL_LOG_FACTORIALS[(int) k];
+		}
+		// Stirling series for log(k!)
+		double x = k + 1.0;
+		double inv = 1.0 / x;
+		double inv2 = inv * inv;
+		return (x - 0.5) * Math.log(x) - x + 0.5 * Math.log(2.0 * Math.PI)
+				+ inv * (1.0 / 12.0 - inv2 * (1.0 / 360.0 - inv2 / 1260.0));
+	}
+}
@@ -0,0 +1,185 @@
+package utils;
+
+import java.io.Serializable;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * The SplitMix64 generator of Steele, Lea and Flood (2014), the algorithm
+ * behind {@code java.util.SplittableRandom}, as a commons-math
+ * {@link RandomGenerator}.
+ * <p>
+ * The state is two longs and each draw is an addition and a 64-bit mix, with
+ * no synchronization or atomic update, so an instance must stay confined to
+ * one run (one thread at a time). {@link #split()} derives a new generator
+ * whose output is statistically independent of this one's, which is how a
+ * run's root seed is turned into its separate streams.
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class SplitMix64 implements RandomGenerator, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+	private long seed;
+	private long gamma;
+	private double nextGaussian = Double.NaN;
+
+	/**
+	 * @param seed the seed; equal seeds give equal sequences
+	 */
+	public SplitMix64(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private SplitMix64(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Derives a new generator from the next two outputs of this one, leaving
+	 * the two with independent sequences.
+	 *
+	 * @return the new generator
+	 */
+	public SplitMix64 split() {
+		SplitMix64 child = new SplitMix64(0L, GOLDEN_GAMMA);
+		splitInto(child);
+		return child;
+	}
+
+	/**
+	 * Re-seeds another generator to the state {@link #split()} would have
+	 * given a new one, without allocating.
+	 *
+	 * @param child the generator to overwrite
+	 */
+	void splitInto(SplitMix64 child) {
+		child.seed = mix64(nextSeed());
+		child.gamma = mixGamma(nextSeed());
+		child.nextGaussian = Double.NaN;
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	// An odd gamma with enough bit transitions to mix well
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+	@Override
+	public void setSeed(int seed) {
+		setSeed((long) seed);
+	}
+
+	@Override
+	public void setSeed(int[] seed) {
+		long s = 0;
+		for (int v : seed) {
+			s = s * 31 + v;
+		}
+		setSeed(s);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		this.seed = seed;
+		this.nextGaussian = Double.NaN;
+	}
+
+	@Override
+	public void nextBytes(byte[] bytes) {
+		int i = 0;
+		while (i < bytes.length) {
+			long bits = nextLong();
+			for (int n = Math.min(bytes.length - i, 8); n > 0; n--, bits >>>= 8) {
+				bytes[i++] = (byte) bits;
+			}
+		}
+	}
+
+	@Override
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+
+	@Override
+	public int nextInt(int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("bound " + n + " must be positive");
+		}
+		// Rejection sampling as in java.util.Random, so every value is equally likely
+		int r = nextInt() >>> 1;
+		int m = n - 1;
+		if ((n & m) == 0) {
+			return (int) ((n * (long) r) >>> 31);
+		}
+		for (int u = r; u - (r = u % n) + m < 0; u = nextInt() >>> 1) {
+		}
+		return r;
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextInt() < 0;
+	}
+
+	@Override
+	public float nextFloat() {
+		return (nextInt() >>> 8) * FLOAT_UNIT;
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	@Override
+	public double nextGaussian() {
+		// Marsaglia polar method; the second deviate is kept for the next call
+		if (!Double.isNaN(nextGaussian)) {
+			double g = nextGaussian;
+			nextGaussian = Double.NaN;
+			return g;
+		}
+		double v1;
+		double v2;
+		double s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		double multiplier = Math.sqrt(-2 * Math.log(s) / s);
+		nextGaussian = v2 * multiplier;
+		return v1 * multiplier;
+	}
+}
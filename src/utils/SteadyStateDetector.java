@@ -0,0 +1,129 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Detects when a simulated output series has settled into steady state,
+ * using the MSER-m truncation rule (White, 1997) on batch means.
+ * <p>
+ * Observations are grouped into batches of {@code batchSize} (five for the
+ * usual MSER-5). For each candidate truncation point d, MSER is the
+ * variance of the remaining batch means divided by the number of those
+ * batches; the d that minimises it is where the warm-up bias ends. The series
+ * is declared steady once that point lies in the first half of the batches,
+ * i.e. at least as much data has been seen since the warm-up ended as during
+ * it. Each check costs O(number of batches).
+ * </p>
+ *
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class SteadyStateDetector implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Batch size of the MSER-5 variant. */
+	public static final int MSER_5 = 5;
+
+	private final int batchSize;
+	private final int minBatches;
+	private double[] batchMeans = new double[64];
+	private int batches = 0;
+	private double batchSum = 0.0;
+	private int batchCount = 0;
+
+	/**
+	 * @param batchSize  the number of observations averaged into each batch mean
+	 * @param minBatches the number of batches needed before steady state can be declared
+	 */
+	public SteadyStateDetector(int batchSize, int minBatches) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize " + batchSize + " must be at least 1");
+		}
+		if (minBatches < 2) {
+			throw new IllegalArgumentException("minBatches " + minBatches + " must be at least 2");
+		}
+		this.batchSize = batchSize;
+		this.minBatches = minBatches;
+	}
+
+	/**
+	 * Adds the next observation of the series.
+	 *
+	 * @param value the observation
+	 * @return true if the observation completed a batch
+	 */
+	public boolean add(double value) {
+		batchSum += value;
+		if (++batchCount < batchSize) {
+			return false;
+		}
+		if (batches == batchMeans.length) {
+			batchMeans = Arrays.copyOf(batchMeans, batches * 2);
+		}
+		batchMeans[batches++] = batchSum / batchSize;
+		batchSum = 0.0;
+		batchCount = 0;
+		return true;
+	}
+
+	/**
+	 * Finds the MSER truncation point over the completed batches.
+	 *
+	 * @return the number of leading batches to discard, or -1 if fewer than
+	 *         two batches are complete
+	 */
+	public int truncationPoint() {
+		if (batches < 2) {
+			return -1;
+		}
+		// Walk back from the end, keeping sums of the batches after d.
+		double sum = batchMeans[batches - 1];
+		double sumSquares = sum * sum;
+		int best = batches - 1;
+		double bestStatistic = Double.POSITIVE_INFINITY;
+		for (int d = batches - 2; d >= 0; d--) {
+			double z = batchMeans[d];
+			sum += z;
+			sumSquares += z * z;
+			int n = batches - d;
+			double statistic = Math.max(0.0, sumSquares - sum * sum / n) / ((double) n * n);
+			if (statistic <= bestStatistic) {
+				bestStatistic = statistic;
+				best = d;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return true once enough batches are complete and the MSER truncation
+	 *         point lies in their first half
+	 */
+	public boolean isSteady() {
+		if (batches < minBatches) {
+			return false;
+		}
+		return truncationPoint() <= batches / 2;
+	}
+
+	/**
+	 * @return the number of leading observations the MSER rule discards as
+	 *         warm-up, or -1 if fewer than two batches are complete
+	 */
+	public int getWarmUpLength() {
+		int d = truncationPoint();
+		return d < 0 ? -1 : d * batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the number of completed batches
+	 */
+	public int getBatches() {
+		return batches;
+	}
+}
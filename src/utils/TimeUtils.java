@@ -1,13 +1,9 @@
 package utils;
 
-import repast.simphony.engine.schedule.ISchedule;
-import repast.simphony.engine.environment.RunEnvironment;
-
 /**
- * Utility class for time conversion and schedule access in the simulation.
+ * Utility class for time conversion in the simulation.
  * <p>
- * Provides constants for converting between simulation ticks and real-world time units,
- * and provides access to the Repast Simphony schedule.
+ * Provides constants for converting between simulation ticks and real-world time units.
  * </p>
  *
  * @author [Project Team]
@@ -54,13 +50,4 @@ public class TimeUtils {
 		return "Day " + day + "," + hour + ":" + minuteStr;
 	}
 
-	/**
-	 * Gets the current simulation schedule from Repast Simphony.
-	 *
-	 * @return the current ISchedule instance
-	 */
-	public static ISchedule getSchedule() {
-		return RunEnvironment.getInstance().getCurrentSchedule();
-	}
-
 }
@@ -0,0 +1,182 @@
+package utils;
+
+import java.io.Serializable;
+
+/**
+ * Weighted random selection over a changing set of items.
+ * <p>
+ * Items are stored in slots and their weights are kept in a Fenwick (binary
+ * indexed) tree, so adding, removing or re-weighting an item and drawing an
+ * item with probability proportional to its weight all cost O(log N). Freed
+ * slots are recycled, keeping the tree as small as the peak population.
+ * </p>
+ *
+ * @param <T> the type of item being sampled
+ * @author [Project Team]
+ * @version 1.0
+ */
+public class WeightedSampler<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Object[] items;
+	private double[] weights;
+	/** 1-based Fenwick tree of partial weight sums. */
+	private double[] tree;
+	private int[] freeSlots;
+	private int freeCount = 0;
+	private int highWater = 0;
+	private int size = 0;
+	private double total = 0.0;
+
+	/**
+	 * Constructs an empty sampler.
+	 */
+	public WeightedSampler() {
+		items = new Object[INITIAL_CAPACITY];
+		weights = new double[INITIAL_CAPACITY];
+		tree = new double[INITIAL_CAPACITY + 1];
+		freeSlots = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds an item with the given weight.
+	 *
+	 * @param item   the item to add
+	 * @param weight the item's non-negative selection weight
+	 * @return the slot assigned to the item, used for later updates and removal
+	 */
+	public int add(T item, double weight) {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (highWater == items.length) {
+				grow();
+			}
+			slot = highWater++;
+		}
+		items[slot] = item;
+		size++;
+		update(slot, weight);
+		return slot;
+	}
+
+	/**
+	 * Removes the item held in a slot and frees the slot for reuse.
+	 *
+	 * @param slot the slot returned by {@link #add(Object, double)}
+	 */
+	public void remove(int slot) {
+		update(slot, 0.0);
+		items[slot] = null;
+		freeSlots[freeCount++] = slot;
+		size--;
+		if (size == 0) {
+			// Discard round-off left in the running sums.
+			java.util.Arrays.fill(tree, 0.0);
+			total = 0.0;
+		}
+	}
+
+	/**
+	 * Changes the weight of the item held in a slot.
+	 *
+	 * @param slot   the item's slot
+	 * @param weight the new non-negative weight
+	 */
+	public void update(int slot, double weight) {
+		if (weight < 0.0) {
+			throw new IllegalArgumentException("weight " + weight + " must be non-negative");
+		}
+		double delta = weight - weights[slot];
+		if (delta == 0.0) {
+			return;
+		}
+		weights[slot] = weight;
+		total += delta;
+		for (int i = slot + 1; i < tree.length; i += i & (-i)) {
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * Draws an item with probability proportional to its weight.
+	 *
+	 * @param u a uniform random number in [0, 1)
+	 * @return the selected item, or null if the total weight is zero
+	 */
+	@SuppressWarnings("unchecked")
+	public T sample(double u) {
+		if (size == 0 || total <= 0.0) {
+			return null;
+		}
+		double target = u * total;
+		int capacity = tree.length - 1;
+		int pos = 0;
+		for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next <= capacity && tree[next] <= target) {
+				pos = next;
+				target -= tree[next];
+			}
+		}
+		// pos is now the 0-based slot; round-off can only push it onto an empty
+		// or zero-weight slot at the edges, so step to the nearest live item.
+		if (pos >= highWater || weights[pos] <= 0.0) {
+			pos = nearestWeightedSlot(Math.min(pos, highWater - 1));
+		}
+		return (T) items[pos];
+	}
+
+	private int nearestWeightedSlot(int from) {
+		for (int i = from; i >= 0; i--) {
+			if (weights[i] > 0.0) {
+				return i;
+			}
+		}
+		for (int i = from + 1; i < highWater; i++) {
+			if (weights[i] > 0.0) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("No positive weight in sampler with total " + total);
+	}
+
+	private void grow() {
+		int capacity = items.length * 2;
+		items = java.util.Arrays.copyOf(items, capacity);
+		weights = java.util.Arrays.copyOf(weights, capacity);
+		freeSlots = java.util.Arrays.copyOf(freeSlots, capacity);
+		tree = new double[capacity + 1];
+		for (int i = 1; i <= capacity; i++) {
+			tree[i] += weights[i - 1];
+			int parent = i + (i & (-i));
+			if (parent <= capacity) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	/**
+	 * @return the weight of the item in a slot
+	 */
+	public double getWeight(int slot) {
+		return weights[slot];
+	}
+
+	/**
+	 * @return the sum of all item weights
+	 */
+	public double getTotalWeight() {
+		return Math.max(0.0, total);
+	}
+
+	/**
+	 * @return the number of items currently held
+	 */
+	public int size() {
+		return size;
+	}
+}